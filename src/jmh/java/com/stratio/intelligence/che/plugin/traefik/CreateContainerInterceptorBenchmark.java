@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
+import org.eclipse.che.plugin.docker.client.json.ExposedPort;
+import org.eclipse.che.plugin.docker.client.json.ImageConfig;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.params.CreateContainerParams;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.ServerEvaluationStrategyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives {@link TraefikCreateContainerInterceptor#invoke} end to end with a stubbed {@link
+ * DockerConnector} and {@link MethodInvocation}. The image inspection is stubbed once and then
+ * served by the image cache, as it is for a stack image on a running wsmaster.
+ *
+ * <p>The interceptor modifies the container configuration, so each operation builds a fresh one:
+ * {@link #baseline()} measures only this part and has to be subtracted from {@link #invoke()}.
+ *
+ * <p>Run with the allocation profiler to compare changes of the interceptor:
+ *
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="CreateContainerInterceptor -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateContainerInterceptorBenchmark {
+
+  private static final String IMAGE = "eclipse/ubuntu_jdk8:latest";
+
+  /** Templates by complexity: "expression" cannot be compiled and is rendered for each port. */
+  private static final Map<String, String> TEMPLATES = new HashMap<>();
+
+  static {
+    TEMPLATES.put("simple", "predatio.traefik/<serverName>");
+    TEMPLATES.put("default", "predatio.traefik/<serverName>-<machineName>-<workspaceId>");
+    TEMPLATES.put(
+        "expression",
+        "predatio.traefik/<if(serverName)><serverName><else>server<endif>-<workspaceId>");
+  }
+
+  /** Labels of the container and of the image, half each. */
+  @Param({"10", "50"})
+  public int labels;
+
+  /** Ports exposed by the container and by the image, half each. */
+  @Param({"2", "20"})
+  public int exposedPorts;
+
+  /** Environment variables of the container and of the image, half each. */
+  @Param({"10", "50"})
+  public int envSize;
+
+  @Param({"simple", "default", "expression"})
+  public String templateComplexity;
+
+  private TraefikCreateContainerInterceptor interceptor;
+  private DockerConnector dockerConnector;
+
+  private Map<String, String> containerLabels;
+  private Map<String, Map<String, String>> containerExposedPorts;
+  private String[] containerEnv;
+
+  @Setup
+  public void setup() throws Exception {
+    final String template = TEMPLATES.get(templateComplexity);
+
+    containerLabels = new HashMap<>();
+    final Map<String, String> imageLabels = new HashMap<>();
+    containerExposedPorts = new HashMap<>();
+    final Map<String, ExposedPort> imageExposedPorts = new HashMap<>();
+    for (int i = 0; i < exposedPorts; i++) {
+      final String portValue = (4400 + i) + "/tcp";
+      final Map<String, String> target = i % 2 == 0 ? containerLabels : imageLabels;
+      target.put("che:server:" + portValue + ":ref", "server" + i);
+      target.put("che:server:" + portValue + ":protocol", "http");
+      if (i % 2 == 0) {
+        containerExposedPorts.put(portValue, new HashMap<>());
+      } else {
+        imageExposedPorts.put(portValue, new ExposedPort());
+      }
+    }
+    for (int i = 0; i < labels; i++) {
+      (i % 2 == 0 ? containerLabels : imageLabels).put("label" + i, "value" + i);
+    }
+    containerEnv = new String[envSize / 2 + 2];
+    containerEnv[0] = "CHE_WORKSPACE_ID=work123";
+    containerEnv[1] = "CHE_MACHINE_NAME=abcd";
+    for (int i = 2; i < containerEnv.length; i++) {
+      containerEnv[i] = "CONTAINER_VAR" + i + "=value" + i;
+    }
+    final String[] imageEnv = new String[envSize - envSize / 2];
+    for (int i = 0; i < imageEnv.length; i++) {
+      imageEnv[i] = "IMAGE_VAR" + i + "=value" + i;
+    }
+
+    final ImageConfig imageConfig = mock(ImageConfig.class);
+    when(imageConfig.getLabels()).thenReturn(imageLabels);
+    when(imageConfig.getExposedPorts()).thenReturn(imageExposedPorts);
+    when(imageConfig.getEnv()).thenReturn(imageEnv);
+    final ImageInfo imageInfo = mock(ImageInfo.class);
+    when(imageInfo.getId()).thenReturn("sha256:0123456789abcdef");
+    when(imageInfo.getConfig()).thenReturn(imageConfig);
+    dockerConnector = mock(DockerConnector.class);
+    when(dockerConnector.inspectImage(any(InspectImageParams.class))).thenReturn(imageInfo);
+
+    final ServerEvaluationStrategyProvider serverEvaluationStrategyProvider =
+        mock(ServerEvaluationStrategyProvider.class);
+    when(serverEvaluationStrategyProvider.get())
+        .thenReturn(
+            new CustomServerEvaluationStrategy(
+                "10.0.0.1", "127.0.0.1", template, "http", "8080", null));
+
+    interceptor = new TraefikCreateContainerInterceptor();
+    interceptor.setServerEvaluationStrategyProvider(serverEvaluationStrategyProvider);
+    interceptor.setTemplate(template);
+  }
+
+  /** Cost of building the container configuration given to each invocation */
+  @Benchmark
+  public CreateContainerParams baseline() {
+    return createContainerParams();
+  }
+
+  /** Full interception of a createContainer call */
+  @Benchmark
+  public Object invoke() throws Throwable {
+    return interceptor.invoke(
+        new StubMethodInvocation(dockerConnector, createContainerParams(), null));
+  }
+
+  private CreateContainerParams createContainerParams() {
+    final ContainerConfig containerConfig = new ContainerConfig();
+    containerConfig.setImage(IMAGE);
+    containerConfig.setLabels(new HashMap<>(containerLabels));
+    containerConfig.setExposedPorts(new HashMap<>(containerExposedPorts));
+    containerConfig.setEnv(containerEnv.clone());
+    return CreateContainerParams.create(containerConfig).withContainerName("workspace123_abcd");
+  }
+}
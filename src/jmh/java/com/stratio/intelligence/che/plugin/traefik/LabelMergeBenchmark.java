@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the per-container merge of labels, exposed ports and env done by copying (the former
+ * path of the interceptor) with the read-only views. Run it with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelMergeBenchmark {
+
+  @Param({"10", "100"})
+  public int labels;
+
+  @Param({"1", "10", "20"})
+  public int exposedPorts;
+
+  @Param({"10", "50"})
+  public int envSize;
+
+  private Map<String, String> containerLabels;
+  private Map<String, Map<String, String>> containerExposedPorts;
+  private String[] containerEnv;
+  private ImageMetadata imageMetadata;
+
+  @Setup
+  public void setup() {
+    containerLabels = new HashMap<>();
+    final Map<String, String> imageLabels = new HashMap<>();
+    for (int i = 0; i < labels; i++) {
+      (i % 2 == 0 ? containerLabels : imageLabels).put("label" + i, "value" + i);
+    }
+    containerExposedPorts = new HashMap<>();
+    final Set<String> imagePorts = new LinkedHashSet<>();
+    for (int i = 0; i < exposedPorts; i++) {
+      final String port = (4400 + i) + "/tcp";
+      if (i % 2 == 0) {
+        containerExposedPorts.put(port, Collections.emptyMap());
+      } else {
+        imagePorts.add(port);
+      }
+    }
+    containerEnv = new String[envSize];
+    final String[] imageEnv = new String[envSize];
+    for (int i = 0; i < envSize; i++) {
+      containerEnv[i] = "CONTAINER_VAR" + i + "=value";
+      imageEnv[i] = "IMAGE_VAR" + i + "=value";
+    }
+    imageMetadata = new ImageMetadata("sha256:image", imageLabels, imagePorts, imageEnv);
+  }
+
+  /** Former path: labels and ports copied, env concatenated through a stream */
+  @Benchmark
+  public void copied(Blackhole blackhole) {
+    final Map<String, String> allLabels = new HashMap<>(containerLabels);
+    allLabels.putAll(imageMetadata.getLabels());
+    final Set<String> allExposedPorts =
+        ImmutableSet.<String>builder()
+            .addAll(containerExposedPorts.keySet())
+            .addAll(imageMetadata.getExposedPorts())
+            .build();
+    final String[] allEnv =
+        Stream.concat(Arrays.stream(containerEnv), Arrays.stream(imageMetadata.getEnv()))
+            .toArray(String[]::new);
+    consume(blackhole, allLabels, allExposedPorts, allEnv);
+    for (String portValue : allExposedPorts) {
+      final int slash = portValue.indexOf('/');
+      blackhole.consume(slash < 0 ? portValue : portValue.substring(0, slash));
+    }
+  }
+
+  /** Current path: read-only views, image ports parsed once, exact-size env */
+  @Benchmark
+  public void merged(Blackhole blackhole) {
+    final Map<String, String> allLabels =
+        new MergedLabels(containerLabels, imageMetadata.getLabels());
+    final MergedExposedPorts allExposedPorts =
+        new MergedExposedPorts(containerExposedPorts.keySet(), imageMetadata);
+    final String[] allEnv =
+        TraefikCreateContainerInterceptor.concat(containerEnv, imageMetadata.getEnv());
+    consume(blackhole, allLabels, allExposedPorts, allEnv);
+    for (ParsedPort parsedPort : allExposedPorts.parsed()) {
+      blackhole.consume(parsedPort.getPort());
+    }
+  }
+
+  /** Reads the merged data the way the offline rendering evaluation does. */
+  private static void consume(
+      Blackhole blackhole, Map<String, String> labels, Set<String> ports, String[] env) {
+    for (Map.Entry<String, String> label : labels.entrySet()) {
+      blackhole.consume(label.getValue());
+    }
+    for (String port : ports) {
+      blackhole.consume(port);
+    }
+    blackhole.consume(env.length);
+  }
+}
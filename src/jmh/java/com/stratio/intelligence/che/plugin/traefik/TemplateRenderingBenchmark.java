@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static java.lang.String.format;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy.RenderingEvaluation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Traefik labels built by rendering the whole template for each port (the former
+ * path of the interceptor) with the labels built from the {@link CompiledRouteTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+  private static final String CONTAINER_NAME = "workspace123_abcd";
+
+  @Param({"1", "10", "20"})
+  public int exposedPorts;
+
+  @Param({"predatio.traefik/<serverName>-<machineName>-<workspaceId>"})
+  public String template;
+
+  private RenderingEvaluation renderingEvaluation;
+  private Set<String> allExposedPorts;
+  private CompiledRouteTemplate compiledTemplate;
+
+  @Setup
+  public void setup() {
+    final Map<String, String> labels = new HashMap<>();
+    allExposedPorts = new LinkedHashSet<>();
+    for (int i = 0; i < exposedPorts; i++) {
+      final String portValue = (4400 + i) + "/tcp";
+      allExposedPorts.add(portValue);
+      labels.put("che:server:" + portValue + ":ref", "server" + i);
+      labels.put("che:server:" + portValue + ":protocol", "http");
+    }
+    final String[] env = {"CHE_WORKSPACE_ID=work123", "CHE_MACHINE_NAME=abcd"};
+    renderingEvaluation =
+        new CustomServerEvaluationStrategy("10.0.0.1", "127.0.0.1", template, "http", "8080", null)
+            .getOfflineRenderingEvaluation(labels, allExposedPorts, env);
+    compiledTemplate = CompiledRouteTemplate.compile(template);
+  }
+
+  /** Former path: two renderings, two splits and four formats per port */
+  @Benchmark
+  public Map<String, String> rendered() {
+    final Map<String, String> containerLabels = new HashMap<>();
+    allExposedPorts.forEach(
+        (portValue) -> {
+          final String serviceName = renderingEvaluation.render("service-<serverName>", portValue);
+          final String port = portValue.split("/")[0];
+          String hostnameAndPort = renderingEvaluation.render(template, portValue);
+          String[] elements = hostnameAndPort.split("/");
+          final String serviceId = (elements.length > 1) ? elements[1] : "";
+          final String path = format("PathPrefixStrip:/%s", serviceId);
+          containerLabels.put(format("traefik.%s.port", serviceName), port);
+          containerLabels.put(format("traefik.%s.frontend.entryPoints", serviceName), "http");
+          containerLabels.put(format("traefik.%s.frontend.rule", serviceName), path);
+          containerLabels.put("traefik.frontend.rule", CONTAINER_NAME);
+        });
+    return containerLabels;
+  }
+
+  /** Current path: one rendering per port, container placeholders rendered once */
+  @Benchmark
+  public Map<String, String> compiled() {
+    final Map<String, String> containerLabels = new HashMap<>();
+    String[] containerValues = null;
+    for (String portValue : allExposedPorts) {
+      final String serverName = renderingEvaluation.render("<serverName>", portValue);
+      final int slash = portValue.indexOf('/');
+      final String port = slash < 0 ? portValue : portValue.substring(0, slash);
+      if (containerValues == null) {
+        containerValues = compiledTemplate.renderContainerValues(renderingEvaluation, portValue);
+      }
+      final String serviceId = compiledTemplate.renderServiceId(containerValues, serverName);
+      final String service = "traefik.service-" + serverName;
+      containerLabels.put(service + ".port", port);
+      containerLabels.put(service + ".frontend.entryPoints", "http");
+      containerLabels.put(service + ".frontend.rule", "PathPrefixStrip:/" + serviceId);
+    }
+    containerLabels.put("traefik.frontend.rule", CONTAINER_NAME);
+    return containerLabels;
+  }
+}
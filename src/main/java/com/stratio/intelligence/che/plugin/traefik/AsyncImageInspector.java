@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts image inspections on a dedicated bounded pool, so that the interceptor prepares the
+ * container while the daemon answers. Cached images are answered without leaving the calling
+ * thread, which never inspects an image itself. If the inspection fails, is rejected by a full pool
+ * or does not finish in time, the routes are built from the container data only ({@link
+ * ImageMetadata#EMPTY}); a late inspection still fills the cache for the next containers.
+ *
+ * <p>The recent images of each workspace are remembered: when an image of a workspace is not
+ * cached, its start is cold and the other images of the workspace (database, sidecars...) are
+ * inspected at once, before Che creates their containers.
+ */
+public class AsyncImageInspector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncImageInspector.class);
+
+  /** Default number of inspection threads. */
+  public static final int DEFAULT_THREADS = 4;
+
+  /** Default time to wait for an inspection, in milliseconds. */
+  public static final long DEFAULT_TIMEOUT_MS = 2000;
+
+  /** Default time to wait for an inspection whose labels may match injection rules, in ms. */
+  public static final long DEFAULT_LABELS_TIMEOUT_MS = 10000;
+
+  /** Pending inspections per thread, beyond them new inspections fail at once. */
+  private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+  /** Workspaces whose images are remembered. */
+  private static final long MAXIMUM_WORKSPACES = 10_000;
+
+  /** Images remembered per workspace, the least recently used are forgotten. */
+  static final int MAXIMUM_IMAGES_PER_WORKSPACE = 8;
+
+  private final ImageMetadataCache imageMetadataCache;
+  private final ThreadPoolExecutor executor;
+  private final long timeoutMillis;
+  private final long labelsTimeoutMillis;
+
+  /** workspace id -> images of its recent containers, most recent last */
+  private final Cache<String, List<String>> workspaceImages =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAXIMUM_WORKSPACES)
+          .expireAfterAccess(1, TimeUnit.DAYS)
+          .build();
+
+  /**
+   * @param imageMetadataCache cache of the inspected images
+   * @param threads maximum number of concurrent inspections
+   * @param timeoutMillis time to wait for an inspection before falling back to container data
+   * @param labelsTimeoutMillis total time to wait for an inspection whose labels may match
+   *     injection rules, see {@link #awaitLabels}
+   */
+  public AsyncImageInspector(
+      ImageMetadataCache imageMetadataCache,
+      int threads,
+      long timeoutMillis,
+      long labelsTimeoutMillis) {
+    this.imageMetadataCache = imageMetadataCache;
+    this.timeoutMillis = timeoutMillis;
+    this.labelsTimeoutMillis = labelsTimeoutMillis;
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+            new ThreadFactoryBuilder()
+                .setNameFormat("traefik-inspect-image-%d")
+                .setDaemon(true)
+                .build(),
+            new ThreadPoolExecutor.AbortPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Starts the inspection of an image
+   *
+   * @param dockerConnector connector used to inspect the image
+   * @param image the image reference
+   * @return the future metadata of the image, already completed if the image is cached or if the
+   *     pool is full
+   */
+  public CompletableFuture<ImageMetadata> inspect(DockerConnector dockerConnector, String image) {
+    imageMetadataCache.watch(dockerConnector);
+    final ImageMetadata cached = imageMetadataCache.getIfPresent(image);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              return imageMetadataCache.get(dockerConnector, image);
+            } catch (IOException e) {
+              throw new CompletionException(e);
+            }
+          },
+          executor);
+    } catch (RejectedExecutionException e) {
+      // the daemon is behind, the caller must not wait for it without a timeout
+      final CompletableFuture<ImageMetadata> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(
+          new IOException(executor.getQueue().size() + " image inspections already pending"));
+      return rejected;
+    }
+  }
+
+  /**
+   * Starts the inspection of the image of a workspace container and, if the image is not cached,
+   * of the other recent images of the workspace
+   *
+   * @param dockerConnector connector used to inspect the images
+   * @param workspaceId the workspace of the container, null if none
+   * @param image the image reference
+   * @return the future metadata of the image, already completed if the image is cached or if the
+   *     pool is full
+   */
+  public CompletableFuture<ImageMetadata> inspect(
+      DockerConnector dockerConnector, String workspaceId, String image) {
+    final CompletableFuture<ImageMetadata> inspection = inspect(dockerConnector, image);
+    if (workspaceId != null) {
+      final List<String> previousImages = workspaceImages.getIfPresent(workspaceId);
+      workspaceImages
+          .asMap()
+          .merge(workspaceId, ImmutableList.of(image), (images, added) -> recent(images, image));
+      if (!inspection.isDone() && previousImages != null) {
+        for (String previous : previousImages) {
+          if (!previous.equals(image)) {
+            // cached images are answered at once, failures are left to the next containers
+            inspect(dockerConnector, previous);
+          }
+        }
+      }
+    }
+    return inspection;
+  }
+
+  /**
+   * Waits for an inspection started by {@link #inspect}
+   *
+   * @param inspection the pending inspection
+   * @param image the image reference, for logging
+   * @return the metadata of the image, or {@link ImageMetadata#EMPTY} if the inspection failed or
+   *     timed out
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public ImageMetadata await(CompletableFuture<ImageMetadata> inspection, String image)
+      throws InterruptedException {
+    try {
+      return inspection.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn(
+          "Inspection of image {} took more than {} ms, using container data",
+          image,
+          timeoutMillis);
+    } catch (ExecutionException e) {
+      LOG.warn(
+          "Unable to inspect image {}, using container data: {}",
+          image,
+          e.getCause().getMessage());
+    }
+    return ImageMetadata.EMPTY;
+  }
+
+  /**
+   * Keeps waiting for an inspection that {@link #await} gave up on, when the labels of the image
+   * may match injection rules, up to the labels timeout in total
+   *
+   * @param inspection the pending inspection
+   * @param image the image reference, for logging
+   * @return the metadata of the image, or {@link ImageMetadata#EMPTY} if the inspection failed or
+   *     timed out again
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public ImageMetadata awaitLabels(CompletableFuture<ImageMetadata> inspection, String image)
+      throws InterruptedException {
+    try {
+      return inspection.get(
+          Math.max(0, labelsTimeoutMillis - timeoutMillis), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn(
+          "Inspection of image {} took more than {} ms, using container data",
+          image,
+          labelsTimeoutMillis);
+    } catch (ExecutionException e) {
+      LOG.warn("Unable to inspect image {}: {}", image, e.getCause().getMessage());
+    }
+    return ImageMetadata.EMPTY;
+  }
+
+  /** @return the images with the given one moved or added last, the oldest ones dropped */
+  static List<String> recent(List<String> images, String image) {
+    if (images.get(images.size() - 1).equals(image)) {
+      return images;
+    }
+    final ImmutableList.Builder<String> recent = ImmutableList.builder();
+    final int keep = MAXIMUM_IMAGES_PER_WORKSPACE - 1;
+    int skip = images.size() - (images.contains(image) ? 1 : 0) - keep;
+    for (String previous : images) {
+      if (!previous.equals(image) && skip-- <= 0) {
+        recent.add(previous);
+      }
+    }
+    return recent.add(image).build();
+  }
+}
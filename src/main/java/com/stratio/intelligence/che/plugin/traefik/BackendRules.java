@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Splitter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+
+/**
+ * Per server type rules of the Traefik backend settings. Rules are a semicolon separated list of
+ * {@code <server>.<setting>=<value>}, where {@code <server>} is the server name of the port (e.g.
+ * "wsagent", "terminal") or {@code *} for every server, a server rule overriding the {@code *} one:
+ *
+ * <ul>
+ *   <li>{@code healthcheck.path}, {@code healthcheck.interval}: backend health check
+ *   <li>{@code circuitbreaker.expression}: backend circuit breaker
+ *   <li>{@code maxconn.amount}: maximum connections per client, or {@code maxconn.perGb} to scale
+ *       them with the memory limit of the container
+ *   <li>{@code weight}: load balancer weight, or {@code cpuShares} to derive it from the CPU shares
+ *       of the container (1024 shares for a weight of 10)
+ * </ul>
+ *
+ * <p>e.g. {@code wsagent.healthcheck.path=/api/;wsagent.healthcheck.interval=10s;
+ * *.maxconn.perGb=50}
+ */
+public class BackendRules {
+
+  private static final String ANY_SERVER = "*";
+
+  private static final long GB = 1024L * 1024 * 1024;
+
+  private static final int DEFAULT_CPU_SHARES = 1024;
+
+  /** Weight derived from the CPU shares of the container, configured weights are above 0. */
+  private static final int CPU_SHARES_WEIGHT = 0;
+
+  /** server -> parsed settings */
+  private final Map<String, ServerRule> rules = new HashMap<>();
+
+  /**
+   * @param rules semicolon separated list of {@code <server>.<setting>=<value>}
+   * @throws IllegalArgumentException if a rule, setting or value is invalid
+   */
+  public BackendRules(String rules) {
+    for (String rule : Splitter.on(';').trimResults().omitEmptyStrings().split(rules)) {
+      final int equals = rule.indexOf('=');
+      final int dot = rule.indexOf('.');
+      checkArgument(
+          dot > 0 && equals > dot,
+          "Invalid backend rule %s, expected <server>.<setting>=<value>",
+          rule);
+      this.rules
+          .computeIfAbsent(rule.substring(0, dot).trim(), server -> new ServerRule())
+          .set(rule.substring(dot + 1, equals).trim(), rule.substring(equals + 1).trim());
+    }
+  }
+
+  /**
+   * @return true if a rule sets a backend level setting (health check, circuit breaker or maximum
+   *     connections), which needs a {@link RouteProvider} since Docker labels cannot set it per
+   *     port
+   */
+  public boolean hasBackendSettings() {
+    for (ServerRule rule : rules.values()) {
+      if (rule.healthCheckPath != null
+          || rule.circuitBreaker != null
+          || rule.maxConn != null
+          || rule.maxConnPerGb != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the backend settings of a port
+   *
+   * @param serverName the server name of the port
+   * @param hostConfig the resources of the container, may be null
+   * @return the settings, null if no rule applies
+   */
+  public BackendSettings settings(String serverName, HostConfig hostConfig) {
+    final ServerRule server = rules.get(serverName);
+    final ServerRule any = rules.get(ANY_SERVER);
+    if (server == null && any == null) {
+      return null;
+    }
+    final String healthCheckPath = get(server, any, rule -> rule.healthCheckPath);
+    // a server maximum connections rule, fixed or scaled, overrides both * ones
+    final ServerRule maxConnRule =
+        server != null && (server.maxConn != null || server.maxConnPerGb != null)
+            ? server
+            : any != null ? any : server;
+    final Integer weight = get(server, any, rule -> rule.weight);
+    return new BackendSettings(
+        healthCheckPath,
+        healthCheckPath == null ? null : get(server, any, rule -> rule.healthCheckInterval),
+        get(server, any, rule -> rule.circuitBreaker),
+        maxConnRule.maxConnPerGb != null && hostConfig != null && hostConfig.getMemory() > 0
+            ? (int) Math.max(1, hostConfig.getMemory() * maxConnRule.maxConnPerGb / GB)
+            : maxConnRule.maxConn,
+        weight == null ? null : weight == CPU_SHARES_WEIGHT ? weightOf(hostConfig) : weight);
+  }
+
+  /** @return the weight of a container from its CPU shares, 10 for the default 1024 shares */
+  private static int weightOf(HostConfig hostConfig) {
+    final int cpuShares =
+        hostConfig != null && hostConfig.getCpuShares() > 0
+            ? hostConfig.getCpuShares()
+            : DEFAULT_CPU_SHARES;
+    return Math.max(1, cpuShares * 10 / DEFAULT_CPU_SHARES);
+  }
+
+  private static <T> T get(ServerRule server, ServerRule any, Function<ServerRule, T> setting) {
+    final T value = server == null ? null : setting.apply(server);
+    return value != null || any == null ? value : setting.apply(any);
+  }
+
+  /** Settings of a server, parsed once. */
+  private static final class ServerRule {
+
+    private String healthCheckPath;
+    private String healthCheckInterval;
+    private String circuitBreaker;
+    private Integer maxConn;
+    private Long maxConnPerGb;
+    private Integer weight;
+
+    private void set(String setting, String value) {
+      switch (setting) {
+        case "healthcheck.path":
+          healthCheckPath = value;
+          break;
+        case "healthcheck.interval":
+          healthCheckInterval = value;
+          break;
+        case "circuitbreaker.expression":
+          circuitBreaker = value;
+          break;
+        case "maxconn.amount":
+          maxConn = positive(setting, value);
+          break;
+        case "maxconn.perGb":
+          maxConnPerGb = (long) positive(setting, value);
+          break;
+        case "weight":
+          weight = "cpuShares".equals(value) ? CPU_SHARES_WEIGHT : positive(setting, value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown backend setting " + setting);
+      }
+    }
+
+    private static int positive(String setting, String value) {
+      final int number;
+      try {
+        number = Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            String.format("Invalid backend setting %s=%s, expected a number", setting, value));
+      }
+      checkArgument(number > 0, "Invalid backend setting %s=%s, expected above 0", setting, value);
+      return number;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Objects;
+
+/**
+ * Traefik backend settings of a route: health check, circuit breaker, maximum connections and load
+ * balancer weight. Unset settings are null.
+ */
+public final class BackendSettings {
+
+  private final String healthCheckPath;
+  private final String healthCheckInterval;
+  private final String circuitBreaker;
+  private final Integer maxConn;
+  private final Integer weight;
+
+  /**
+   * @param healthCheckPath path of the health check, e.g. "/api/"
+   * @param healthCheckInterval interval of the health check, e.g. "10s"
+   * @param circuitBreaker circuit breaker expression, e.g. "NetworkErrorRatio() > 0.5"
+   * @param maxConn maximum number of connections per client host
+   * @param weight load balancer weight of the server
+   */
+  public BackendSettings(
+      String healthCheckPath,
+      String healthCheckInterval,
+      String circuitBreaker,
+      Integer maxConn,
+      Integer weight) {
+    this.healthCheckPath = healthCheckPath;
+    this.healthCheckInterval = healthCheckInterval;
+    this.circuitBreaker = circuitBreaker;
+    this.maxConn = maxConn;
+    this.weight = weight;
+  }
+
+  public String getHealthCheckPath() {
+    return healthCheckPath;
+  }
+
+  public String getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  public String getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public Integer getMaxConn() {
+    return maxConn;
+  }
+
+  public Integer getWeight() {
+    return weight;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof BackendSettings)) {
+      return false;
+    }
+    final BackendSettings settings = (BackendSettings) o;
+    return Objects.equals(healthCheckPath, settings.healthCheckPath)
+        && Objects.equals(healthCheckInterval, settings.healthCheckInterval)
+        && Objects.equals(circuitBreaker, settings.circuitBreaker)
+        && Objects.equals(maxConn, settings.maxConn)
+        && Objects.equals(weight, settings.weight);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(healthCheckPath, healthCheckInterval, circuitBreaker, maxConn, weight);
+  }
+
+  @Override
+  public String toString() {
+    return "BackendSettings{healthCheckPath='"
+        + healthCheckPath
+        + "', healthCheckInterval='"
+        + healthCheckInterval
+        + "', circuitBreaker='"
+        + circuitBreaker
+        + "', maxConn="
+        + maxConn
+        + ", weight="
+        + weight
+        + '}';
+  }
+}
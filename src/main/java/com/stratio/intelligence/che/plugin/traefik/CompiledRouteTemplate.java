@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy.RenderingEvaluation;
+
+/**
+ * The custom strategy template (hostname/&lt;final_endpoint_id&gt; or
+ * host:port/&lt;final_endpoint_id&gt;) parsed once into a sequence of literals and placeholders.
+ * The endpoint id used by the Traefik routes is the part of the rendered template between the
+ * first and the second '/', as when the whole template is rendered.
+ *
+ * <p>{@code <serverName>} is the only placeholder depending on the port. The other known ones
+ * (machine name, workspace id...) are rendered once per container, so building the endpoint id of a
+ * port is a plain concatenation.
+ *
+ * <p>Templates using anything else than simple {@code <name>} placeholders of the known ones
+ * (StringTemplate expressions, escapes, placeholders that may depend on the port) cannot be
+ * compiled: {@link #compile(String)} returns null and the template has to be rendered for each
+ * port.
+ */
+public final class CompiledRouteTemplate {
+
+  /** The placeholder depending on the port. */
+  public static final String SERVER_NAME = "serverName";
+
+  /** Placeholders of the custom strategy that have the same value for every port. */
+  private static final Set<String> CONTAINER_PLACEHOLDERS =
+      ImmutableSet.of(
+          "workspaceId",
+          "machineName",
+          "isDevMachine",
+          "externalAddress",
+          "externalIP",
+          "chePort",
+          "wildcardNipDomain",
+          "wildcardXipDomain");
+
+  /** Separator of the container placeholders rendered in a single call. */
+  private static final char SEPARATOR = '\u001F';
+
+  /** literals[i] goes before placeholders[i], the last literal goes after the last placeholder. */
+  private final String[] literals;
+
+  private final String[] placeholders;
+
+  /** Whether placeholders[i] is {@link #SERVER_NAME}. */
+  private final boolean[] serverNames;
+
+  /** Template rendering all the container placeholders at once, null if there is none. */
+  private final String containerTemplate;
+
+  /** Length of all the literals, used to size the builders. */
+  private final int literalsLength;
+
+  private CompiledRouteTemplate(String[] literals, String[] placeholders) {
+    this.literals = literals;
+    this.placeholders = placeholders;
+    this.serverNames = new boolean[placeholders.length];
+    final StringBuilder containerTemplate = new StringBuilder();
+    for (int i = 0; i < placeholders.length; i++) {
+      final String placeholder = placeholders[i];
+      serverNames[i] = SERVER_NAME.equals(placeholder);
+      if (!serverNames[i]) {
+        if (containerTemplate.length() > 0) {
+          containerTemplate.append(SEPARATOR);
+        }
+        containerTemplate.append('<').append(placeholder).append('>');
+      }
+    }
+    this.containerTemplate = containerTemplate.length() > 0 ? containerTemplate.toString() : null;
+    int length = 0;
+    for (String literal : literals) {
+      length += literal.length();
+    }
+    this.literalsLength = length;
+  }
+
+  /**
+   * Parses a custom strategy template
+   *
+   * @param template the template, e.g. "predatio.traefik/&lt;serverName&gt;-&lt;workspaceId&gt;"
+   * @return the compiled template or null if the template is null or is not made of simple known
+   *     placeholders
+   */
+  public static CompiledRouteTemplate compile(String template) {
+    if (template == null) {
+      return null;
+    }
+    final List<String> literals = new ArrayList<>();
+    final List<String> placeholders = new ArrayList<>();
+    int literalStart = 0;
+    int i = 0;
+    while (i < template.length()) {
+      final char c = template.charAt(i);
+      if (c == '\\' || c == '>') {
+        return null;
+      }
+      if (c == '<') {
+        final int close = template.indexOf('>', i);
+        if (close < 0 || !isIdentifier(template, i + 1, close)) {
+          return null;
+        }
+        final String placeholder = template.substring(i + 1, close);
+        if (!SERVER_NAME.equals(placeholder) && !CONTAINER_PLACEHOLDERS.contains(placeholder)) {
+          // its value may depend on the port
+          return null;
+        }
+        literals.add(template.substring(literalStart, i));
+        placeholders.add(placeholder);
+        i = close + 1;
+        literalStart = i;
+      } else {
+        i++;
+      }
+    }
+    literals.add(template.substring(literalStart));
+    return new CompiledRouteTemplate(
+        literals.toArray(new String[literals.size()]),
+        placeholders.toArray(new String[placeholders.size()]));
+  }
+
+  /**
+   * Renders, in a single call, the placeholders that do not depend on the port
+   *
+   * @param renderingEvaluation the rendering evaluation of the container
+   * @param portValue any exposed port of the container, under the form "22/tcp"
+   * @return the values of the placeholders, indexed as the placeholders of the template
+   */
+  public String[] renderContainerValues(RenderingEvaluation renderingEvaluation, String portValue) {
+    final String[] values = new String[placeholders.length];
+    if (containerTemplate == null) {
+      return values;
+    }
+    final String rendered = renderingEvaluation.render(containerTemplate, portValue);
+    int from = 0;
+    for (int i = 0; i < placeholders.length; i++) {
+      if (!serverNames[i]) {
+        int to = rendered.indexOf(SEPARATOR, from);
+        if (to < 0) {
+          to = rendered.length();
+        }
+        values[i] = rendered.substring(from, to);
+        from = Math.min(to + 1, rendered.length());
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Builds the endpoint id of a port
+   *
+   * @param containerValues the values returned by {@link #renderContainerValues}
+   * @param serverName the server name of the port
+   * @return the endpoint id, the part of the rendered template between the first and the second
+   *     '/', or an empty string
+   */
+  public String renderServiceId(String[] containerValues, String serverName) {
+    final String rendered;
+    if (placeholders.length == 0) {
+      rendered = literals[0];
+    } else {
+      final StringBuilder builder = new StringBuilder(literalsLength + 16 * placeholders.length);
+      for (int i = 0; i < placeholders.length; i++) {
+        builder.append(literals[i]).append(serverNames[i] ? serverName : containerValues[i]);
+      }
+      rendered = builder.append(literals[placeholders.length]).toString();
+    }
+    // the values may contain '/' too
+    final int start = rendered.indexOf('/');
+    if (start < 0) {
+      return "";
+    }
+    final int end = rendered.indexOf('/', start + 1);
+    return end < 0 ? rendered.substring(start + 1) : rendered.substring(start + 1, end);
+  }
+
+  private static boolean isIdentifier(String template, int from, int to) {
+    if (from >= to || !Character.isJavaIdentifierStart(template.charAt(from))) {
+      return false;
+    }
+    for (int i = from + 1; i < to; i++) {
+      if (!Character.isJavaIdentifierPart(template.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a properties configuration file and reloads it each time it changes, so that the plug-in
+ * can be reconfigured on a running server. The whole directory is watched, which also catches the
+ * symbolic link swaps of mounted configuration maps.
+ */
+public class ConfigurationWatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfigurationWatcher.class);
+
+  private final Path file;
+  private final Consumer<Properties> listener;
+  private Properties current;
+
+  /**
+   * @param file the properties file
+   * @param listener applies a loaded configuration, called only when the configuration changes
+   */
+  public ConfigurationWatcher(Path file, Consumer<Properties> listener) {
+    this.file = file.toAbsolutePath();
+    this.listener = listener;
+  }
+
+  /**
+   * Loads the file and applies it if it changed since the last load
+   *
+   * @return true if a new configuration was applied
+   */
+  public synchronized boolean load() {
+    final Properties properties = new Properties();
+    if (Files.exists(file)) {
+      try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      } catch (IOException e) {
+        LOG.warn("Unable to read the configuration {}: {}", file, e.getMessage());
+        return false;
+      }
+    }
+    if (properties.equals(current)) {
+      return false;
+    }
+    current = properties;
+    try {
+      listener.accept(properties);
+      LOG.info("Applied the configuration {}", file);
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to apply the configuration {}: {}", file, e.getMessage());
+    }
+    return true;
+  }
+
+  /** Loads the file and starts a daemon thread reloading it on changes. */
+  public void start() {
+    load();
+    final Thread watcher = new Thread(this::watch, "traefik-configuration-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  private void watch() {
+    try (WatchService watchService = file.getFileSystem().newWatchService()) {
+      file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+      while (!Thread.currentThread().isInterrupted()) {
+        final WatchKey key = watchService.take();
+        key.pollEvents();
+        load();
+        if (!key.reset()) {
+          LOG.warn("The configuration directory of {} is no longer watched", file);
+          return;
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to watch the configuration {}: {}", file, e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
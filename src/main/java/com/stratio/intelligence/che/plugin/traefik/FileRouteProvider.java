@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Writes the routes of each container to its own TOML file of a directory watched by the Traefik
+ * file provider ({@code [file] directory = "..." watch = true}). Files are replaced by an atomic
+ * rename, so Traefik never reads a partial file, and only the file of the changed container is
+ * reloaded.
+ */
+public class FileRouteProvider implements RouteProvider {
+
+  /** Default directory of the route files. */
+  public static final String DEFAULT_DIRECTORY = "/etc/traefik/routes";
+
+  private static final String EXTENSION = ".toml";
+
+  private final Path directory;
+
+  /** @param directory directory watched by the Traefik file provider */
+  public FileRouteProvider(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  @Override
+  public void publish(String containerName, List<TraefikRoute> routes) throws IOException {
+    final Path file = file(containerName);
+    // hidden and without the toml extension, ignored by Traefik until renamed
+    final Path temporary = directory.resolve("." + file.getFileName() + ".tmp");
+    Files.write(temporary, toToml(containerName, routes).getBytes(UTF_8));
+    Files.move(
+        temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Override
+  public void remove(String containerName) throws IOException {
+    Files.deleteIfExists(file(containerName));
+  }
+
+  /** @return the file holding the routes of a container */
+  Path file(String containerName) {
+    return directory.resolve(containerName.replace('/', '_') + EXTENSION);
+  }
+
+  /**
+   * Renders the routes of a container as a Traefik 1.x file provider configuration
+   *
+   * @param containerName the name of the container
+   * @param routes the routes of the container
+   * @return the TOML configuration
+   */
+  static String toToml(String containerName, List<TraefikRoute> routes) {
+    final StringBuilder backends = new StringBuilder(256 * (routes.size() + 1));
+    final StringBuilder frontends = new StringBuilder(256 * (routes.size() + 1));
+    backends.append("# Routes of container ").append(containerName).append("\n[backends]\n");
+    frontends.append("\n[frontends]\n");
+    for (TraefikRoute route : routes) {
+      final String name = quote(containerName + '-' + route.getService());
+      backends
+          .append("  [backends.")
+          .append(name)
+          .append("]\n    [backends.")
+          .append(name)
+          .append(".servers.server]\n    url = ")
+          .append(quote("http://" + containerName + ':' + route.getPort()))
+          .append('\n');
+      appendBackend(backends, name, route.getBackend());
+      frontends
+          .append("  [frontends.")
+          .append(name)
+          .append("]\n    backend = ")
+          .append(name)
+          .append("\n    entryPoints = [")
+          .append(quote(route.getEntryPoint()))
+          .append("]\n    [frontends.")
+          .append(name)
+          .append(".routes.route]\n    rule = ")
+          .append(quote(route.getRule()))
+          .append('\n');
+    }
+    return backends.append(frontends).toString();
+  }
+
+  /** Appends the backend settings of a route, if any. */
+  private static void appendBackend(StringBuilder backends, String name, BackendSettings backend) {
+    if (backend == null) {
+      return;
+    }
+    if (backend.getWeight() != null) {
+      backends.append("    weight = ").append(backend.getWeight()).append('\n');
+    }
+    if (backend.getHealthCheckPath() != null) {
+      backends
+          .append("    [backends.")
+          .append(name)
+          .append(".healthcheck]\n    path = ")
+          .append(quote(backend.getHealthCheckPath()))
+          .append('\n');
+      if (backend.getHealthCheckInterval() != null) {
+        backends
+            .append("    interval = ")
+            .append(quote(backend.getHealthCheckInterval()))
+            .append('\n');
+      }
+    }
+    if (backend.getCircuitBreaker() != null) {
+      backends
+          .append("    [backends.")
+          .append(name)
+          .append(".circuitbreaker]\n    expression = ")
+          .append(quote(backend.getCircuitBreaker()))
+          .append('\n');
+    }
+    if (backend.getMaxConn() != null) {
+      backends
+          .append("    [backends.")
+          .append(name)
+          .append(".maxconn]\n    amount = ")
+          .append(backend.getMaxConn())
+          .append("\n    extractorfunc = \"client.ip\"\n");
+    }
+  }
+
+  /** @return a TOML basic string */
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of positive values. Values below 16 are exact, bigger ones are counted in 8
+ * buckets per power of two, so percentiles are accurate to 12.5%.
+ */
+public class Histogram {
+
+  private static final int EXACT = 16;
+  private static final int SUB_BUCKETS = 8;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int MIN_EXPONENT = 4;
+
+  private static final int BUCKETS = EXACT + (Long.SIZE - MIN_EXPONENT) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value
+   *
+   * @param value the value, negative values are recorded as 0
+   */
+  public void record(long value) {
+    final long positive = Math.max(0, value);
+    buckets.incrementAndGet(index(positive));
+    count.increment();
+    sum.add(positive);
+    max.accumulateAndGet(positive, Math::max);
+  }
+
+  /** @return number of recorded values */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** @return sum of the recorded values */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /** @return biggest recorded value */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** @return mean of the recorded values, 0 if there is none */
+  public double getMean() {
+    final long n = count.sum();
+    return n == 0 ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * Gets a percentile of the recorded values
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the upper bound of the bucket holding the percentile, 0 if there is no value
+   */
+  public long getPercentile(double quantile) {
+    return getPercentile(quantile, this);
+  }
+
+  /**
+   * Gets a percentile of the values recorded by several histograms
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @param histograms the histograms
+   * @return the upper bound of the bucket holding the percentile, 0 if there is no value
+   */
+  public static long getPercentile(double quantile, Histogram... histograms) {
+    long total = 0;
+    long max = 0;
+    for (Histogram histogram : histograms) {
+      for (int i = 0; i < histogram.buckets.length(); i++) {
+        total += histogram.buckets.get(i);
+      }
+      max = Math.max(max, histogram.getMax());
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      for (Histogram histogram : histograms) {
+        seen += histogram.buckets.get(i);
+      }
+      if (seen >= rank) {
+        return Math.min(upperBound(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Counts the recorded values up to a bound, e.g. for the cumulative {@code le} buckets of a
+   * Prometheus histogram, which can be summed over several servers
+   *
+   * @param bound the bound
+   * @return number of values up to the bound, accurate to 12.5% of the bound
+   */
+  public long getCountAtMost(long bound) {
+    if (bound < 0) {
+      return 0;
+    }
+    final int last = index(bound);
+    long count = 0;
+    for (int i = 0; i <= last; i++) {
+      count += buckets.get(i);
+    }
+    return count;
+  }
+
+  private static int index(long value) {
+    if (value < EXACT) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return EXACT + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBound(int index) {
+    if (index < EXACT) {
+      return index;
+    }
+    final int exponent = (index - EXACT) / SUB_BUCKETS + MIN_EXPONENT;
+    final long subBucket = (index - EXACT) % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.inject.Inject;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pre-warms the {@link ImageMetadataCache} when the server starts, so that the first workspace of
+ * each stack after a restart does not wait for a cold image inspection:
+ *
+ * <ol>
+ *   <li>the snapshot file written by the previous run is loaded, without calling the daemon
+ *   <li>in background, the images of the Docker host are listed, snapshot entries whose tag now
+ *       points to another image are dropped and the missing stack images are inspected with
+ *       bounded concurrency
+ *   <li>the snapshot is written again, and on shutdown
+ * </ol>
+ */
+public class ImageIndexWarmer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImageIndexWarmer.class);
+
+  /** Default number of concurrent inspections. */
+  public static final int DEFAULT_CONCURRENCY = 4;
+
+  /** First bytes of a snapshot file, followed by its format version. */
+  private static final int MAGIC = 0x54524b49;
+
+  private static final int VERSION = 1;
+
+  private final ImageMetadataCache imageMetadataCache;
+  private final Path snapshotFile;
+  private final List<String> stackImages;
+  private final int concurrency;
+
+  /**
+   * @param imageMetadataCache the cache to fill
+   * @param snapshotFile the snapshot file, null to disable the snapshot
+   * @param stackImages the images to inspect, as referenced by the stacks
+   * @param concurrency maximum number of concurrent inspections
+   */
+  public ImageIndexWarmer(
+      ImageMetadataCache imageMetadataCache,
+      Path snapshotFile,
+      List<String> stackImages,
+      int concurrency) {
+    this.imageMetadataCache = imageMetadataCache;
+    this.snapshotFile = snapshotFile;
+    this.stackImages = ImmutableList.copyOf(stackImages);
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Starts the warm-up in background, once the Docker connector is available
+   *
+   * @param dockerConnector the connector of the Docker host
+   */
+  @Inject
+  public void start(DockerConnector dockerConnector) {
+    final ExecutorService executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("traefik-image-warmer")
+                .setDaemon(true)
+                .build());
+    executor.execute(
+        () -> {
+          try {
+            warm(dockerConnector);
+          } catch (Exception e) {
+            LOG.warn("Unable to pre-warm the image index: {}", e.getMessage());
+          }
+        });
+    executor.shutdown();
+    if (snapshotFile != null) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(this::saveQuietly, "traefik-image-snapshot"));
+    }
+  }
+
+  /**
+   * Validates the loaded entries against the images of the Docker host and inspects the missing
+   * stack images
+   *
+   * @param dockerConnector the connector of the Docker host
+   * @return number of inspected images
+   * @throws IOException if the images cannot be listed or the snapshot cannot be written
+   * @throws InterruptedException if interrupted while inspecting
+   */
+  public int warm(DockerConnector dockerConnector) throws IOException, InterruptedException {
+    final long start = System.nanoTime();
+    imageMetadataCache.watch(dockerConnector);
+
+    // image reference -> image id, on the Docker host
+    final Map<String, String> localImages = new HashMap<>();
+    for (Image image : dockerConnector.listImages()) {
+      if (image.getRepoTags() != null) {
+        for (String repoTag : image.getRepoTags()) {
+          localImages.put(repoTag, image.getId());
+        }
+      }
+    }
+
+    // the tag of a snapshot entry may have been pulled again while the server was down, digests
+    // cannot change
+    imageMetadataCache
+        .snapshot()
+        .forEach(
+            (image, imageMetadata) -> {
+              if (image.indexOf('@') < 0
+                  && !imageMetadata.getId().equals(localImages.get(withTag(image)))) {
+                imageMetadataCache.invalidate(image);
+              }
+            });
+
+    final Set<String> missing = new LinkedHashSet<>();
+    for (String image : stackImages) {
+      if (localImages.containsKey(withTag(image))
+          && imageMetadataCache.getIfPresent(image) == null) {
+        missing.add(image);
+      }
+    }
+
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(concurrency, missing.size())),
+            new ThreadFactoryBuilder()
+                .setNameFormat("traefik-image-warmer-%d")
+                .setDaemon(true)
+                .build());
+    int inspected = 0;
+    try {
+      final List<Future<ImageMetadata>> inspections = new ArrayList<>(missing.size());
+      for (String image : missing) {
+        inspections.add(executor.submit(() -> imageMetadataCache.get(dockerConnector, image)));
+      }
+      for (Future<ImageMetadata> inspection : inspections) {
+        try {
+          inspection.get();
+          inspected++;
+        } catch (ExecutionException e) {
+          LOG.warn("Unable to pre-warm an image: {}", e.getCause().getMessage());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    save();
+    LOG.info(
+        "Pre-warmed {} images, {} cached, in {} ms",
+        inspected,
+        imageMetadataCache.getSize(),
+        (System.nanoTime() - start) / 1_000_000);
+    return inspected;
+  }
+
+  /**
+   * Loads the snapshot written by the previous run into the cache
+   *
+   * @return number of loaded images
+   */
+  public int loadSnapshot() {
+    if (snapshotFile == null) {
+      return 0;
+    }
+    try (DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(snapshotFile))))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        LOG.warn("Ignoring the image snapshot {}, unknown format", snapshotFile);
+        return 0;
+      }
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final String image = in.readUTF();
+        final String id = in.readUTF();
+        final Map<String, String> labels = new HashMap<>();
+        for (int j = in.readInt(); j > 0; j--) {
+          labels.put(in.readUTF(), in.readUTF());
+        }
+        final Set<String> exposedPorts = new LinkedHashSet<>();
+        for (int j = in.readInt(); j > 0; j--) {
+          exposedPorts.add(in.readUTF());
+        }
+        final String[] env = new String[in.readInt()];
+        for (int j = 0; j < env.length; j++) {
+          env[j] = in.readUTF();
+        }
+        imageMetadataCache.put(image, new ImageMetadata(id, labels, exposedPorts, env));
+      }
+      LOG.info("Loaded {} images from the snapshot {}", count, snapshotFile);
+      return count;
+    } catch (NoSuchFileException e) {
+      return 0;
+    } catch (IOException e) {
+      LOG.warn("Unable to load the image snapshot {}: {}", snapshotFile, e.getMessage());
+      return 0;
+    }
+  }
+
+  /**
+   * Writes the cached images to the snapshot file, replaced atomically
+   *
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void save() throws IOException {
+    if (snapshotFile == null) {
+      return;
+    }
+    final Map<String, ImageMetadata> snapshot = imageMetadataCache.snapshot();
+    final Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(snapshot.size());
+      for (Map.Entry<String, ImageMetadata> entry : snapshot.entrySet()) {
+        final ImageMetadata imageMetadata = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeUTF(imageMetadata.getId());
+        out.writeInt(imageMetadata.getLabels().size());
+        for (Map.Entry<String, String> label : imageMetadata.getLabels().entrySet()) {
+          out.writeUTF(label.getKey());
+          out.writeUTF(label.getValue());
+        }
+        out.writeInt(imageMetadata.getExposedPorts().size());
+        for (String exposedPort : imageMetadata.getExposedPorts()) {
+          out.writeUTF(exposedPort);
+        }
+        out.writeInt(imageMetadata.getEnv().length);
+        for (String variable : imageMetadata.getEnv()) {
+          out.writeUTF(variable);
+        }
+      }
+    }
+    Files.move(
+        temporary,
+        snapshotFile,
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void saveQuietly() {
+    try {
+      save();
+    } catch (IOException e) {
+      LOG.warn("Unable to write the image snapshot {}: {}", snapshotFile, e.getMessage());
+    }
+  }
+
+  /** @return the image reference with the implicit "latest" tag, as listed by the daemon */
+  static String withTag(String image) {
+    final int digest = image.indexOf('@');
+    if (digest >= 0) {
+      return image;
+    }
+    return image.lastIndexOf(':') > image.lastIndexOf('/') ? image : image + ":latest";
+  }
+}
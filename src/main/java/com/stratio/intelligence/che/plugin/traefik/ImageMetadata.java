@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.che.plugin.docker.client.json.ImageConfig;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+
+/**
+ * Immutable view of the image data used by the interceptor to build the Traefik routes: labels,
+ * exposed ports and environment. It is extracted once from {@link ImageInfo} and then shared by
+ * every container created from the same image.
+ */
+public final class ImageMetadata {
+
+  private static final String[] NO_ENV = new String[0];
+
+  /** Metadata of an image that could not be inspected: the routes use the container data only. */
+  public static final ImageMetadata EMPTY = new ImageMetadata(null, null, null, null);
+
+  private final String id;
+  private final Map<String, String> labels;
+  private final Set<String> exposedPorts;
+  private final List<ParsedPort> parsedPorts;
+  private final String[] env;
+
+  public ImageMetadata(
+      String id, Map<String, String> labels, Set<String> exposedPorts, String[] env) {
+    this.id = id;
+    this.labels = labels == null ? ImmutableMap.of() : ImmutableMap.copyOf(labels);
+    this.exposedPorts =
+        exposedPorts == null ? ImmutableSet.of() : ImmutableSet.copyOf(exposedPorts);
+    final ImmutableList.Builder<ParsedPort> parsedPorts = ImmutableList.builder();
+    for (String exposedPort : this.exposedPorts) {
+      parsedPorts.add(ParsedPort.of(exposedPort));
+    }
+    this.parsedPorts = parsedPorts.build();
+    this.env = env == null ? NO_ENV : env.clone();
+  }
+
+  /**
+   * Extracts the metadata of an inspected image
+   *
+   * @param reference the image reference used to inspect the image, used as id if the daemon does
+   *     not report one
+   * @param imageInfo the result of the image inspection
+   * @return the metadata of the image
+   */
+  public static ImageMetadata of(String reference, ImageInfo imageInfo) {
+    final String id = imageInfo.getId() != null ? imageInfo.getId() : reference;
+    final ImageConfig config = imageInfo.getConfig();
+    if (config == null) {
+      return new ImageMetadata(id, null, null, null);
+    }
+    return new ImageMetadata(
+        id,
+        config.getLabels(),
+        config.getExposedPorts() == null ? null : config.getExposedPorts().keySet(),
+        config.getEnv());
+  }
+
+  /** @return the image id (or digest) */
+  public String getId() {
+    return id;
+  }
+
+  /** @return the labels of the image, never null */
+  public Map<String, String> getLabels() {
+    return labels;
+  }
+
+  /** @return the exposed ports of the image under the form "22/tcp", never null */
+  public Set<String> getExposedPorts() {
+    return exposedPorts;
+  }
+
+  /** @return the exposed ports of the image, parsed once, in the same order */
+  public List<ParsedPort> getParsedPorts() {
+    return parsedPorts;
+  }
+
+  /** @return the environment of the image, never null. Callers must not modify it. */
+  public String[] getEnv() {
+    return env;
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.Event;
+import org.eclipse.che.plugin.docker.client.json.Filters;
+import org.eclipse.che.plugin.docker.client.params.GetEventsParams;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of {@link ImageMetadata}. Metadata is stored by image id (or digest) and image
+ * references (e.g. "eclipse/ubuntu_jdk8:latest") are only aliases to these ids, so a re-pulled tag
+ * resolves to the new image as soon as the daemon reports the image event. Entries are evicted by
+ * size and by time to live.
+ */
+public class ImageMetadataCache implements ImageMetadataCacheMBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImageMetadataCache.class);
+
+  /** Default maximum number of cached images. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 256;
+
+  /** Default time to live of the cached images, in seconds. */
+  public static final long DEFAULT_TIME_TO_LIVE_SECONDS = 600;
+
+  /** Image events that may change what an image reference points to. */
+  private static final Set<String> IMAGE_EVENTS =
+      ImmutableSet.of("delete", "import", "load", "pull", "tag", "untag");
+
+  /** Delay before subscribing again to the daemon events after a failure. */
+  private static final long EVENTS_RETRY_DELAY_MS = 5000;
+
+  /**
+   * Minimum time an events stream has to stay open, when it delivered no event, to be taken as
+   * connected to the daemon.
+   */
+  private static final long EVENTS_CONNECTED_MS = EVENTS_RETRY_DELAY_MS;
+
+  /** image reference -> image id */
+  private final Cache<String, String> references;
+
+  /** image id -> metadata */
+  private final Cache<String, ImageMetadata> images;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  private final AtomicBoolean watching = new AtomicBoolean();
+
+  /**
+   * @param maximumSize maximum number of images kept in the cache
+   * @param timeToLive time after which an entry has to be inspected again
+   * @param unit unit of {@code timeToLive}
+   */
+  public ImageMetadataCache(long maximumSize, long timeToLive, TimeUnit unit) {
+    final RemovalListener<Object, Object> evictionCounter =
+        notification -> {
+          if (notification.wasEvicted()) {
+            evictions.increment();
+          }
+        };
+    this.references =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive, unit)
+            .removalListener(evictionCounter)
+            .build();
+    this.images =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive, unit)
+            .removalListener(evictionCounter)
+            .build();
+  }
+
+  /**
+   * Gets the metadata of an image, inspecting it only if it is not cached. Concurrent lookups of
+   * the same reference share a single inspection.
+   *
+   * @param dockerConnector connector used to inspect the image on a miss
+   * @param image the image reference of the container
+   * @return the metadata of the image
+   * @throws IOException if the image inspection fails
+   */
+  public ImageMetadata get(DockerConnector dockerConnector, String image) throws IOException {
+    final ImageMetadata cached = lookup(image);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    // metadata inspected by this lookup, kept in case the cache evicts it at once
+    final ImageMetadata[] loaded = new ImageMetadata[1];
+    try {
+      final ImageMetadata imageMetadata =
+          images.getIfPresent(
+              references.get(
+                  image,
+                  () -> {
+                    loaded[0] = inspect(dockerConnector, image);
+                    return loaded[0].getId();
+                  }));
+      if (imageMetadata != null) {
+        return imageMetadata;
+      }
+      if (loaded[0] != null) {
+        return loaded[0];
+      }
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    // inspected by a concurrent lookup and evicted as soon as loaded: answer without caching
+    return ImageMetadata.of(image, dockerConnector.inspectImage(InspectImageParams.create(image)));
+  }
+
+  /**
+   * Gets the metadata of an image only if it is cached. These probes are not counted as hits, only
+   * the lookups of {@link #get} are.
+   *
+   * @param image the image reference of the container
+   * @return the metadata of the image or null if it is not cached
+   */
+  public ImageMetadata getIfPresent(String image) {
+    return lookup(image);
+  }
+
+  /**
+   * Adds already known metadata to the cache
+   *
+   * @param image the image reference
+   * @param imageMetadata the metadata of the image
+   */
+  public void put(String image, ImageMetadata imageMetadata) {
+    images.put(imageMetadata.getId(), imageMetadata);
+    references.put(image, imageMetadata.getId());
+  }
+
+  /** @return the cached metadata by image reference, a copy */
+  public Map<String, ImageMetadata> snapshot() {
+    final Map<String, ImageMetadata> snapshot = new HashMap<>();
+    references
+        .asMap()
+        .forEach(
+            (image, id) -> {
+              final ImageMetadata imageMetadata = images.getIfPresent(id);
+              if (imageMetadata != null) {
+                snapshot.put(image, imageMetadata);
+              }
+            });
+    return snapshot;
+  }
+
+  /**
+   * Removes every entry matching an image reference or an image id
+   *
+   * @param imageOrId an image reference or an image id
+   */
+  public void invalidate(String imageOrId) {
+    invalidations.increment();
+    references.invalidate(imageOrId);
+    images.invalidate(imageOrId);
+    references.asMap().values().removeIf(imageOrId::equals);
+  }
+
+  /** Removes every entry */
+  public void invalidateAll() {
+    invalidations.increment();
+    references.invalidateAll();
+    images.invalidateAll();
+  }
+
+  /**
+   * Subscribes, only once, to the image events of the daemon to invalidate the entries of the
+   * images that were pulled, tagged or removed. Every entry is removed when a connected events
+   * stream is lost, as the events sent until the next subscription are missed; a stream that ends
+   * as soon as it is opened does not clear the cache.
+   *
+   * @param dockerConnector connector used to listen to the daemon events
+   */
+  public void watch(DockerConnector dockerConnector) {
+    if (!watching.compareAndSet(false, true)) {
+      return;
+    }
+    final ExecutorService executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("traefik-image-events-%d")
+                .setDaemon(true)
+                .build());
+    executor.execute(
+        () -> {
+          final GetEventsParams params =
+              GetEventsParams.create().withFilters(new Filters().withFilter("type", "image"));
+          while (!Thread.currentThread().isInterrupted()) {
+            final AtomicBoolean received = new AtomicBoolean();
+            final long subscribed = System.nanoTime();
+            try {
+              dockerConnector.getEvents(
+                  params,
+                  event -> {
+                    received.set(true);
+                    onEvent(event);
+                  });
+            } catch (IOException | RuntimeException e) {
+              LOG.warn("Unable to listen to Docker image events: {}", e.getMessage());
+            }
+            if (received.get()
+                || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - subscribed)
+                    >= EVENTS_CONNECTED_MS) {
+              // a connected stream was lost, entries may be stale
+              invalidateAll();
+            }
+            try {
+              Thread.sleep(EVENTS_RETRY_DELAY_MS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        });
+  }
+
+  /** @return number of {@link #get} lookups answered from the cache */
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** @return number of {@link #get} lookups that needed an image inspection */
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** @return number of entries removed because of size or time to live */
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** @return number of invalidations, most of them triggered by image events */
+  @Override
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  /** @return number of cached images */
+  @Override
+  public long getSize() {
+    return images.size();
+  }
+
+  private ImageMetadata lookup(String image) {
+    final String id = references.getIfPresent(image);
+    if (id != null) {
+      final ImageMetadata imageMetadata = images.getIfPresent(id);
+      if (imageMetadata != null) {
+        return imageMetadata;
+      }
+      // the image entry expired before its alias
+      references.invalidate(image);
+    }
+    return null;
+  }
+
+  private void onEvent(Event event) {
+    if (!IMAGE_EVENTS.contains(event.getStatus())) {
+      return;
+    }
+    if ("tag".equals(event.getStatus())) {
+      // the event carries the id of the newly tagged image but not the tag, which may have been
+      // an alias of another image: every reference has to be resolved again
+      invalidations.increment();
+      references.invalidateAll();
+      return;
+    }
+    // pull, import and load events carry the image reference, the other ones the image id
+    for (String imageOrId : new String[] {event.getId(), event.getFrom()}) {
+      if (imageOrId != null) {
+        invalidate(imageOrId);
+        final String alias = alias(imageOrId);
+        if (alias != null) {
+          references.invalidate(alias);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param image an image reference
+   * @return the other reference to the same tag, "name" for "name:latest" and the other way
+   *     round, or null
+   */
+  static String alias(String image) {
+    if (image.endsWith(":latest")) {
+      return image.substring(0, image.length() - ":latest".length());
+    }
+    if (image.indexOf('@') < 0 && image.lastIndexOf(':') <= image.lastIndexOf('/')) {
+      return image + ":latest";
+    }
+    return null;
+  }
+
+  private ImageMetadata inspect(DockerConnector dockerConnector, String image) throws IOException {
+    final ImageMetadata imageMetadata =
+        ImageMetadata.of(image, dockerConnector.inspectImage(InspectImageParams.create(image)));
+    images.put(imageMetadata.getId(), imageMetadata);
+    return imageMetadata;
+  }
+}
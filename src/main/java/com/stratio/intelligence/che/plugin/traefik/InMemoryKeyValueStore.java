@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/** {@link KeyValueStore} kept in memory, for tests: Traefik does not see its keys. */
+public class InMemoryKeyValueStore implements KeyValueStore {
+
+  private final ConcurrentSkipListMap<String, String> entries = new ConcurrentSkipListMap<>();
+
+  @Override
+  public void putAll(Map<String, String> entries) {
+    this.entries.putAll(entries);
+  }
+
+  @Override
+  public void deleteTree(String prefix) {
+    entries.subMap(prefix, true, prefix + Character.MAX_VALUE, true).clear();
+  }
+
+  @Override
+  public Set<String> keys(String prefix) {
+    return new HashSet<>(entries.subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet());
+  }
+
+  @Override
+  public void deleteAll(Collection<String> keys) {
+    entries.keySet().removeAll(keys);
+  }
+
+  /** @return a read-only view of all the keys and values */
+  public NavigableMap<String, String> getEntries() {
+    return Collections.unmodifiableNavigableMap(entries);
+  }
+}
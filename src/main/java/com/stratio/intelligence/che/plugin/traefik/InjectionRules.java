@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Rules changing the environment, command and user of the containers, read from the {@code
+ * inject.<rule>.*} properties of the configuration and compiled once. A rule matches the containers
+ * of an image and/or with a label, every container if it has no condition:
+ *
+ * <ul>
+ *   <li>{@code image}: image of the container, {@code *} matching any characters
+ *   <li>{@code label}: label of the container or of its image, as {@code <key>} or {@code
+ *       <key>=<value>}
+ *   <li>{@code env.<NAME>}: variable appended to the environment
+ *   <li>{@code cmd.<index>}: arguments of the command replacing the one of the container
+ *   <li>{@code user}: user the container is run as
+ * </ul>
+ *
+ * <p>When the inspection of an image is late, its containers wait for it longer only if the labels
+ * of the image may decide a label condition: the image of the rule matches and the container does
+ * not have the label already.
+ *
+ * <p>Rules are applied by name order: the environments add up, the last command or user wins. e.g.
+ * {@code inject.vault.label=com.stratio.vault; inject.vault.env.STRATIO_VAULT_PATH=/path/to/vault}
+ */
+public class InjectionRules {
+
+  /** Prefix of the properties of the rules. */
+  public static final String PREFIX = "inject.";
+
+  private final List<Rule> rules;
+
+  /** @param properties the configuration, properties without the {@link #PREFIX} are ignored */
+  public InjectionRules(Properties properties) {
+    // rule -> setting -> value, sorted by rule name
+    final Map<String, Map<String, String>> settings = new TreeMap<>();
+    for (String name : properties.stringPropertyNames()) {
+      if (name.startsWith(PREFIX)) {
+        final int dot = name.indexOf('.', PREFIX.length());
+        checkArgument(
+            dot > PREFIX.length(),
+            "Invalid injection rule %s, expected %s<rule>.<setting>",
+            name,
+            PREFIX);
+        settings
+            .computeIfAbsent(name.substring(PREFIX.length(), dot), rule -> new TreeMap<>())
+            .put(name.substring(dot + 1), properties.getProperty(name).trim());
+      }
+    }
+    final ImmutableList.Builder<Rule> rules = ImmutableList.builder();
+    for (Map.Entry<String, Map<String, String>> rule : settings.entrySet()) {
+      rules.add(new Rule(rule.getKey(), rule.getValue()));
+    }
+    this.rules = rules.build();
+  }
+
+  /**
+   * Tells if the labels of an image may change the rules matching its containers
+   *
+   * @param image image of the container
+   * @param containerLabels labels of the container configuration, may be null
+   * @return true if a rule of the image has a label condition that the container labels do not
+   *     decide
+   */
+  public boolean needsImageLabels(String image, Map<String, String> containerLabels) {
+    for (Rule rule : rules) {
+      if (rule.labelKey != null
+          && rule.matchesImage(image)
+          // image labels take precedence, but cannot remove a label of the container
+          && !(rule.labelValue == null
+              && containerLabels != null
+              && containerLabels.containsKey(rule.labelKey))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return true if there is no rule */
+  public boolean isEmpty() {
+    return rules.isEmpty();
+  }
+
+  /**
+   * Gets the changes of a container
+   *
+   * @param image image of the container
+   * @param labels labels of the container and of its image
+   * @return the changes of the matching rules, null if no rule matches
+   */
+  public Injection match(String image, Map<String, String> labels) {
+    Injection injection = null;
+    for (Rule rule : rules) {
+      if (rule.matches(image, labels)) {
+        injection = injection == null ? rule.injection : injection.merge(rule.injection);
+      }
+    }
+    return injection;
+  }
+
+  /** Environment, command and user changes of a container. */
+  public static final class Injection {
+
+    private final String[] env;
+    private final String[] cmd;
+    private final String user;
+
+    Injection(String[] env, String[] cmd, String user) {
+      this.env = env;
+      this.cmd = cmd;
+      this.user = user;
+    }
+
+    /**
+     * @param containerEnv environment of the container, may be null
+     * @return the environment of the container followed by the injected variables
+     */
+    public String[] getEnv(String[] containerEnv) {
+      return env.length == 0
+          ? containerEnv
+          : TraefikCreateContainerInterceptor.concat(containerEnv, env);
+    }
+
+    /** @return the command of the container, null to keep it */
+    public String[] getCmd() {
+      return cmd == null ? null : cmd.clone();
+    }
+
+    /** @return the user of the container, null to keep it */
+    public String getUser() {
+      return user;
+    }
+
+    private Injection merge(Injection next) {
+      return new Injection(
+          TraefikCreateContainerInterceptor.concat(env, next.env),
+          next.cmd != null ? next.cmd : cmd,
+          next.user != null ? next.user : user);
+    }
+  }
+
+  /** A compiled rule. */
+  private static final class Rule {
+
+    private final Pattern image;
+    private final String labelKey;
+    private final String labelValue;
+    private final Injection injection;
+
+    private Rule(String name, Map<String, String> settings) {
+      Pattern image = null;
+      String labelKey = null;
+      String labelValue = null;
+      String user = null;
+      final List<String> env = new ArrayList<>();
+      final TreeMap<Integer, String> cmd = new TreeMap<>();
+      for (Map.Entry<String, String> setting : settings.entrySet()) {
+        final String key = setting.getKey();
+        final String value = setting.getValue();
+        if (key.equals("image")) {
+          image = glob(value);
+        } else if (key.equals("label")) {
+          final int equals = value.indexOf('=');
+          labelKey = equals < 0 ? value : value.substring(0, equals).trim();
+          labelValue = equals < 0 ? null : value.substring(equals + 1).trim();
+        } else if (key.equals("user")) {
+          user = value;
+        } else if (key.startsWith("env.") && key.length() > 4) {
+          env.add(key.substring(4) + '=' + value);
+        } else if (key.startsWith("cmd.") && isIndex(key.substring(4))) {
+          cmd.put(Integer.valueOf(key.substring(4)), value);
+        } else {
+          throw new IllegalArgumentException(
+              String.format("Unknown setting %s of injection rule %s", key, name));
+        }
+      }
+      checkArgument(
+          !env.isEmpty() || !cmd.isEmpty() || user != null,
+          "Injection rule %s has no env, cmd or user",
+          name);
+      checkArgument(
+          cmd.isEmpty() || cmd.lastKey() == cmd.size() - 1,
+          "Arguments of the cmd of injection rule %s must be numbered from 0",
+          name);
+      this.image = image;
+      this.labelKey = labelKey;
+      this.labelValue = labelValue;
+      this.injection =
+          new Injection(
+              env.toArray(new String[env.size()]),
+              cmd.isEmpty() ? null : cmd.values().toArray(new String[cmd.size()]),
+              user);
+    }
+
+    private boolean matchesImage(String image) {
+      return this.image == null || (image != null && this.image.matcher(image).matches());
+    }
+
+    private boolean matches(String image, Map<String, String> labels) {
+      if (!matchesImage(image)) {
+        return false;
+      }
+      if (labelKey == null) {
+        return true;
+      }
+      final String value = labels.get(labelKey);
+      return labelValue == null ? value != null : labelValue.equals(value);
+    }
+
+    private static Pattern glob(String glob) {
+      final StringBuilder regex = new StringBuilder();
+      int from = 0;
+      for (int star = glob.indexOf('*'); star >= 0; star = glob.indexOf('*', from)) {
+        regex.append(Pattern.quote(glob.substring(from, star))).append(".*");
+        from = star + 1;
+      }
+      return Pattern.compile(regex.append(Pattern.quote(glob.substring(from))).toString());
+    }
+
+    private static boolean isIndex(String index) {
+      return !index.isEmpty() && index.length() < 4 && index.chars().allMatch(Character::isDigit);
+    }
+  }
+}
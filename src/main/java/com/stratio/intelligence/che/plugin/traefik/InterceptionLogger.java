@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logging of the interception. Nothing is rendered unless the level is enabled:
+ *
+ * <ul>
+ *   <li>INFO: one structured line per container (image, ports, routes, duration), sampled
+ *   <li>DEBUG: env (values redacted) and cmd of the container
+ * </ul>
+ */
+public class InterceptionLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InterceptionLogger.class);
+
+  /** Default fraction of the containers whose summary is logged. */
+  public static final double DEFAULT_SAMPLE_RATE = 1;
+
+  private static final String REDACTED = "***";
+
+  private final double sampleRate;
+
+  /** @param sampleRate fraction, between 0 and 1, of the containers whose summary is logged */
+  public InterceptionLogger(double sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Logs, at DEBUG level, the env and cmd of a container before its modification
+   *
+   * @param containerName name of the container
+   * @param containerConfig configuration of the container
+   */
+  public void containerConfig(String containerName, ContainerConfig containerConfig) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Container {} initial env={} cmd={}",
+          containerName,
+          redactEnv(containerConfig.getEnv()),
+          Arrays.toString(containerConfig.getCmd()));
+    }
+  }
+
+  /**
+   * Logs, at INFO level and sampled, the summary of the routes added to a container
+   *
+   * @param containerName name of the container
+   * @param image image of the container
+   * @param ports number of ports exposed by the container and its image
+   * @param routes number of generated routes
+   * @param startNanos start of the interception, from {@link System#nanoTime()}
+   */
+  public void routes(String containerName, String image, int ports, int routes, long startNanos) {
+    if (LOG.isInfoEnabled() && sampled()) {
+      LOG.info(
+          "Traefik routes container={} image={} ports={} routes={} durationMs={}",
+          containerName,
+          image,
+          ports,
+          routes,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+  }
+
+  private boolean sampled() {
+    return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Hides the values of environment variables, which may hold secrets
+   *
+   * @param env variables under the form NAME=value
+   * @return the variables under the form NAME=***
+   */
+  static String redactEnv(String[] env) {
+    if (env == null) {
+      return "null";
+    }
+    final StringBuilder redacted = new StringBuilder(env.length * 24).append('[');
+    for (int i = 0; i < env.length; i++) {
+      if (i > 0) {
+        redacted.append(", ");
+      }
+      final int equals = env[i].indexOf('=');
+      redacted.append(env[i], 0, equals < 0 ? env[i].length() : equals);
+      if (equals >= 0) {
+        redacted.append('=').append(REDACTED);
+      }
+    }
+    return redacted.append(']').toString();
+  }
+}
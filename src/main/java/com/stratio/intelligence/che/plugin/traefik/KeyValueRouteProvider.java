@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+
+/**
+ * Writes the routes of the containers under the keys read by the Traefik 1.x KV providers:
+ *
+ * <pre>
+ * traefik/backends/&lt;container&gt;@&lt;service&gt;/servers/server/url
+ * traefik/frontends/&lt;container&gt;@&lt;service&gt;/backend
+ * traefik/frontends/&lt;container&gt;@&lt;service&gt;/entrypoints
+ * traefik/frontends/&lt;container&gt;@&lt;service&gt;/routes/route/rule
+ * </pre>
+ *
+ * <p>The routes of a container only depend on its name, so they are removed by key prefix, even
+ * when published before a restart. "@" is not allowed in container names and ends the prefix.
+ *
+ * <p>Publishing again the routes of a container writes the new keys before deleting the stale ones,
+ * so Traefik never sees the container without routes.
+ */
+public class KeyValueRouteProvider implements RouteProvider {
+
+  /** Default root key of the Traefik configuration. */
+  public static final String DEFAULT_PREFIX = "traefik";
+
+  private final String prefix;
+
+  /** Separator of the container and service names of the backends and frontends. */
+  private static final char SEPARATOR = '@';
+
+  private KeyValueStore keyValueStore;
+
+  /** @param prefix root key of the Traefik configuration */
+  public KeyValueRouteProvider(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  public void publish(String containerName, List<TraefikRoute> routes) throws IOException {
+    final Map<String, String> entries = new HashMap<>(routes.size() * 6);
+    for (TraefikRoute route : routes) {
+      final String name = containerName + SEPARATOR + route.getService();
+      final String backend = prefix + "/backends/" + name + '/';
+      final String frontend = prefix + "/frontends/" + name + '/';
+      entries.put(
+          backend + "servers/server/url", "http://" + containerName + ':' + route.getPort());
+      final BackendSettings settings = route.getBackend();
+      if (settings != null) {
+        if (settings.getWeight() != null) {
+          entries.put(backend + "servers/server/weight", settings.getWeight().toString());
+        }
+        if (settings.getHealthCheckPath() != null) {
+          entries.put(backend + "healthcheck/path", settings.getHealthCheckPath());
+          if (settings.getHealthCheckInterval() != null) {
+            entries.put(backend + "healthcheck/interval", settings.getHealthCheckInterval());
+          }
+        }
+        if (settings.getCircuitBreaker() != null) {
+          entries.put(backend + "circuitbreaker/expression", settings.getCircuitBreaker());
+        }
+        if (settings.getMaxConn() != null) {
+          entries.put(backend + "maxconn/amount", settings.getMaxConn().toString());
+          entries.put(backend + "maxconn/extractorfunc", "client.ip");
+        }
+      }
+      entries.put(frontend + "backend", name);
+      entries.put(frontend + "entrypoints", route.getEntryPoint());
+      entries.put(frontend + "routes/route/rule", route.getRule());
+    }
+    keyValueStore.putAll(entries);
+
+    final Set<String> stale =
+        new HashSet<>(keyValueStore.keys(prefix + "/frontends/" + containerName + SEPARATOR));
+    stale.addAll(keyValueStore.keys(prefix + "/backends/" + containerName + SEPARATOR));
+    stale.removeAll(entries.keySet());
+    if (!stale.isEmpty()) {
+      keyValueStore.deleteAll(stale);
+    }
+  }
+
+  @Override
+  public void remove(String containerName) throws IOException {
+    keyValueStore.deleteTree(prefix + "/frontends/" + containerName + SEPARATOR);
+    keyValueStore.deleteTree(prefix + "/backends/" + containerName + SEPARATOR);
+  }
+
+  /**
+   * Sets the KV backend
+   *
+   * @param keyValueStore the store Traefik watches
+   */
+  @Inject
+  protected void setKeyValueStore(KeyValueStore keyValueStore) {
+    this.keyValueStore = keyValueStore;
+  }
+}
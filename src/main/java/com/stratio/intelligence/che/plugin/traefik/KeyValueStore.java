@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Key/value backend read by a Traefik KV provider (etcd, Consul, ZooKeeper...). Implementations
+ * are bound in Guice, see {@link TraefikDockerModule}.
+ */
+public interface KeyValueStore {
+
+  /**
+   * Writes several keys at once, in a single transaction if the backend supports it
+   *
+   * @param entries keys and values to write
+   * @throws IOException if the keys cannot be written
+   */
+  void putAll(Map<String, String> entries) throws IOException;
+
+  /**
+   * Deletes a key and all the keys under it
+   *
+   * @param prefix the key, e.g. "traefik/backends/my-backend/"
+   * @throws IOException if the keys cannot be deleted
+   */
+  void deleteTree(String prefix) throws IOException;
+
+  /**
+   * Lists the keys under a prefix
+   *
+   * @param prefix the prefix, e.g. "traefik/backends/my-backend/"
+   * @return the keys starting with the prefix
+   * @throws IOException if the keys cannot be read
+   */
+  Set<String> keys(String prefix) throws IOException;
+
+  /**
+   * Deletes several keys at once, in a single transaction if the backend supports it
+   *
+   * @param keys the keys to delete
+   * @throws IOException if the keys cannot be deleted
+   */
+  void deleteAll(Collection<String> keys) throws IOException;
+}
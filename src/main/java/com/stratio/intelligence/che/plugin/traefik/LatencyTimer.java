@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histogram recorded in nanoseconds and exposed in milliseconds. Percentiles cover the last
+ * one to two minutes; the cumulative bucket counts, since startup, can be summed over servers.
+ */
+public class LatencyTimer implements LatencyTimerMBean {
+
+  private static final double NANOS_PER_MILLI = 1_000_000d;
+
+  /** Upper bounds of the exposed buckets, in milliseconds. */
+  private static final double[] BUCKET_BOUNDS_MILLIS = {
+    1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+  };
+
+  private final Histogram histogram = new Histogram();
+
+  private final WindowedHistogram recent =
+      new WindowedHistogram(WindowedHistogram.DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+
+  /**
+   * Records the time elapsed since {@code startNanos}
+   *
+   * @param startNanos start of the measured operation, from {@link System#nanoTime()}
+   * @return the current {@link System#nanoTime()}, to be used as start of the next operation
+   */
+  public long record(long startNanos) {
+    final long now = System.nanoTime();
+    histogram.record(now - startNanos);
+    recent.record(now - startNanos);
+    return now;
+  }
+
+  @Override
+  public long getCount() {
+    return histogram.getCount();
+  }
+
+  @Override
+  public double getMeanMillis() {
+    return histogram.getMean() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return histogram.getMax() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP50Millis() {
+    return recent.getPercentile(0.5) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return recent.getPercentile(0.99) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double[] getBucketBoundsMillis() {
+    return BUCKET_BOUNDS_MILLIS.clone();
+  }
+
+  @Override
+  public long[] getBucketCounts() {
+    final long[] counts = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+    for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+      counts[i] = histogram.getCountAtMost((long) (BUCKET_BOUNDS_MILLIS[i] * NANOS_PER_MILLI));
+    }
+    counts[BUCKET_BOUNDS_MILLIS.length] = histogram.getCount();
+    return counts;
+  }
+}
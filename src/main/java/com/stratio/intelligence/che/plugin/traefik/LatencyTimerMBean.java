@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+/** JMX view of a {@link LatencyTimer}. */
+public interface LatencyTimerMBean {
+
+  long getCount();
+
+  double getMeanMillis();
+
+  double getMaxMillis();
+
+  /** @return median latency over the last one to two minutes */
+  double getP50Millis();
+
+  /** @return 99th percentile latency over the last one to two minutes */
+  double getP99Millis();
+
+  /** @return upper bounds of the buckets of {@link #getBucketCounts()}, in milliseconds */
+  double[] getBucketBoundsMillis();
+
+  /**
+   * @return cumulative number of calls up to each bucket bound since startup, followed by the total
+   *     number of calls (Prometheus {@code le} buckets, which can be summed over servers)
+   */
+  long[] getBucketCounts();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Read-only view of the ports exposed by the container and by the image, under the form "22/tcp",
+ * without copying them. Container ports come first, image ports already exposed by the container
+ * are skipped.
+ */
+public final class MergedExposedPorts extends AbstractSet<String> {
+
+  private final Set<String> containerPorts;
+  private final ImageMetadata imageMetadata;
+  private int size = -1;
+
+  /**
+   * @param containerPorts ports exposed by the container configuration
+   * @param imageMetadata the image, exposing pre-parsed ports
+   */
+  public MergedExposedPorts(Set<String> containerPorts, ImageMetadata imageMetadata) {
+    this.containerPorts = containerPorts;
+    this.imageMetadata = imageMetadata;
+  }
+
+  @Override
+  public boolean contains(Object port) {
+    return containerPorts.contains(port) || imageMetadata.getExposedPorts().contains(port);
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return Iterators.unmodifiableIterator(
+        Iterators.concat(
+            containerPorts.iterator(),
+            Iterators.filter(
+                imageMetadata.getExposedPorts().iterator(),
+                port -> !containerPorts.contains(port))));
+  }
+
+  @Override
+  public int size() {
+    if (size < 0) {
+      int merged = containerPorts.size();
+      for (String port : imageMetadata.getExposedPorts()) {
+        if (!containerPorts.contains(port)) {
+          merged++;
+        }
+      }
+      size = merged;
+    }
+    return size;
+  }
+
+  /** @return the merged ports, parsed once for the image and on the fly for the container */
+  public Iterable<ParsedPort> parsed() {
+    final Collection<ParsedPort> imagePorts = imageMetadata.getParsedPorts();
+    return Iterables.concat(
+        Iterables.transform(containerPorts, ParsedPort::of),
+        Iterables.filter(imagePorts, port -> !containerPorts.contains(port.getValue())));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.Iterators;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of the container labels merged with the image labels, without copying them. Image
+ * labels take precedence over container labels with the same key.
+ */
+public final class MergedLabels extends AbstractMap<String, String> {
+
+  private final Map<String, String> containerLabels;
+  private final Map<String, String> imageLabels;
+  private Set<Entry<String, String>> entrySet;
+
+  /**
+   * @param containerLabels labels of the container configuration
+   * @param imageLabels labels of the image, never null
+   */
+  public MergedLabels(Map<String, String> containerLabels, Map<String, String> imageLabels) {
+    this.containerLabels = containerLabels;
+    this.imageLabels = imageLabels;
+  }
+
+  @Override
+  public String get(Object key) {
+    final String value = imageLabels.get(key);
+    return value != null || imageLabels.containsKey(key) ? value : containerLabels.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return imageLabels.containsKey(key) || containerLabels.containsKey(key);
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    if (entrySet == null) {
+      entrySet =
+          new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+              return Iterators.unmodifiableIterator(
+                  Iterators.concat(
+                      imageLabels.entrySet().iterator(),
+                      Iterators.filter(
+                          containerLabels.entrySet().iterator(),
+                          entry -> !imageLabels.containsKey(entry.getKey()))));
+            }
+
+            @Override
+            public int size() {
+              if (imageLabels.isEmpty()) {
+                return containerLabels.size();
+              }
+              int size = imageLabels.size();
+              for (String key : containerLabels.keySet()) {
+                if (!imageLabels.containsKey(key)) {
+                  size++;
+                }
+              }
+              return size;
+            }
+          };
+    }
+    return entrySet;
+  }
+}
@@ -6,60 +6,63 @@
 
 package com.stratio.intelligence.che.plugin.traefik;
 
+import static java.lang.invoke.MethodType.methodType;
+
+import com.google.common.primitives.Primitives;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
 import org.eclipse.che.plugin.docker.client.json.HostConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Proxy pattern for HostConfig */
 public class NFSHostConfig extends HostConfig {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NFSHostConfig.class);
+
+  /**
+   * Copies every HostConfig property, resolved once at class init from its setters and their
+   * get/is getters, so new properties of che-plugin-docker-client are copied too. All the copies
+   * are folded into a single constant method handle which the JIT inlines as direct calls.
+   */
+  private static final MethodHandle COPY = createCopy();
+
   private String volumeDriver;
 
   public NFSHostConfig(HostConfig hostConfig) {
+    copy(hostConfig, this);
+  }
 
-    // TODO change by BeanUtils / Java reflections to call dynamically every set method with its
-    // get/is
-    // (maybe this way better because is needed to avoid usage try catch blocks with for GSON.toJson
-    // )
-
-    this.setBinds(hostConfig.getBinds());
-
-    this.setLinks(hostConfig.getLinks());
-    this.setLxcConf(hostConfig.getLxcConf());
-    this.setPublishAllPorts(hostConfig.isPublishAllPorts());
-    this.setPrivileged(hostConfig.isPrivileged());
-    // FIXME securityOpt ??
-    this.setDns(hostConfig.getDns());
-    this.setDnsSearch(hostConfig.getDnsSearch());
-    this.setExtraHosts(hostConfig.getExtraHosts());
-    this.setVolumesFrom(hostConfig.getVolumesFrom());
-    this.setCapAdd(hostConfig.getCapAdd());
-    this.setCapDrop(hostConfig.getCapDrop());
-    this.setRestartPolicy(hostConfig.getRestartPolicy());
-    this.setNetworkMode(hostConfig.getNetworkMode());
-    this.setDevices(hostConfig.getDevices());
-    this.setContainerIDFile(hostConfig.getContainerIDFile());
-    this.setMemory(hostConfig.getMemory());
-    this.setMemorySwap(hostConfig.getMemorySwap());
-    this.setLogConfig(hostConfig.getLogConfig());
-    this.setIpcMode(hostConfig.getIpcMode());
-    this.setCgroupParent(hostConfig.getCgroupParent());
-    this.setCpuShares(hostConfig.getCpuShares());
-    this.setCpusetCpus(hostConfig.getCpusetCpus());
-    this.setPidMode(hostConfig.getPidMode());
-    this.setReadonlyRootfs(hostConfig.isReadonlyRootfs());
-    this.setUlimits(hostConfig.getUlimits());
-    this.setCpuQuota(hostConfig.getCpuQuota());
-    this.setCpuPeriod(hostConfig.getCpuPeriod());
-    this.setPortBindings(hostConfig.getPortBindings());
-    this.setMemorySwappiness(hostConfig.getMemorySwappiness());
-    this.setPidsLimit((int) hostConfig.getPidsLimit());
+  /**
+   * Copies all the properties of a HostConfig into another one
+   *
+   * @param from the source
+   * @param to the target
+   */
+  static void copy(HostConfig from, HostConfig to) {
+    try {
+      COPY.invokeExact(to, from);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Unable to copy HostConfig", t);
+    }
   }
 
   @Override
   public String toString() {
-    return removeLastChar(super.toString()) + ", volumeDriver='" + this.volumeDriver + '\'' + '}';
-  }
-
-  private static String removeLastChar(String str) {
-    return str.substring(0, str.length() - 1);
+    // append the volume driver before the closing brace of HostConfig.toString
+    final String hostConfig = super.toString();
+    return new StringBuilder(hostConfig.length() + 32)
+        .append(hostConfig, 0, hostConfig.length() - 1)
+        .append(", volumeDriver='")
+        .append(volumeDriver)
+        .append("'}")
+        .toString();
   }
 
   public void setVolumeDriver(String volumeDriver) {
@@ -69,4 +72,90 @@ public class NFSHostConfig extends HostConfig {
   public String getVolumeDriver() {
     return this.volumeDriver;
   }
+
+  /** @return a (HostConfig to, HostConfig from)void handle copying every property */
+  private static MethodHandle createCopy() {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      MethodHandle copy =
+          lookup.findStatic(
+              NFSHostConfig.class,
+              "noCopy",
+              methodType(void.class, HostConfig.class, HostConfig.class));
+      final Method[] methods = HostConfig.class.getMethods();
+      // deterministic order, the last folded copy runs first
+      Arrays.sort(methods, Comparator.comparing(Method::getName).reversed());
+      for (Method setter : methods) {
+        final Method getter = getter(setter);
+        if (getter == null) {
+          continue;
+        }
+        final Class<?> type = setter.getParameterTypes()[0];
+        // (HostConfig)type, converting e.g. the long pidsLimit getter to the int setter
+        final MethodHandle get =
+            MethodHandles.explicitCastArguments(
+                lookup.unreflect(getter), methodType(type, HostConfig.class));
+        // (HostConfig to, HostConfig from)void
+        final MethodHandle copyProperty =
+            MethodHandles.filterArguments(lookup.unreflect(setter), 1, get);
+        copy = MethodHandles.foldArguments(copy, copyProperty);
+      }
+      return copy;
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * Finds the getter of a HostConfig setter
+   *
+   * @param setter a public method of HostConfig
+   * @return the get/is method of the property, or null if the method is not a setter
+   */
+  static Method getter(Method setter) {
+    if (!setter.getName().startsWith("set")
+        || setter.getName().length() == 3
+        || setter.getParameterCount() != 1
+        || setter.getReturnType() != void.class
+        || Modifier.isStatic(setter.getModifiers())
+        || setter.getDeclaringClass() == Object.class) {
+      return null;
+    }
+    final String property = setter.getName().substring(3);
+    final Class<?> type = setter.getParameterTypes()[0];
+    for (String prefix : new String[] {"get", "is"}) {
+      try {
+        final Method getter = HostConfig.class.getMethod(prefix + property);
+        if (isConvertible(getter.getReturnType(), type)) {
+          return getter;
+        }
+      } catch (NoSuchMethodException e) {
+        // try next prefix
+      }
+    }
+    LOG.warn("HostConfig property {} has no getter and cannot be copied", property);
+    return null;
+  }
+
+  /**
+   * @return whether a getter value can be given to a setter: assignable types, boxing, or numbers
+   *     cast to a primitive as {@code (int) hostConfig.getPidsLimit()} would do
+   */
+  private static boolean isConvertible(Class<?> from, Class<?> to) {
+    if (from == void.class) {
+      return false;
+    }
+    if (to.isAssignableFrom(from) || Primitives.wrap(from).equals(Primitives.wrap(to))) {
+      return true;
+    }
+    return isPrimitiveNumber(to) && isPrimitiveNumber(Primitives.unwrap(from));
+  }
+
+  private static boolean isPrimitiveNumber(Class<?> type) {
+    return type.isPrimitive() && type != boolean.class && type != char.class;
+  }
+
+  private static void noCopy(HostConfig to, HostConfig from) {
+    // end of the copy chain
+  }
 }
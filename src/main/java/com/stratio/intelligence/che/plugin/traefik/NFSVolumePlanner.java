@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+
+/**
+ * Rewrites the local binds of a workspace container into volumes of an NFS volume driver, so the
+ * workspace files live on the NFS server instead of the local disk of the Docker host.
+ *
+ * <p>A bind "/host/path:/projects:Z" whose container path is one of the configured paths becomes
+ * "&lt;server&gt;/&lt;export&gt;/&lt;workspaceId&gt;/projects:/projects:Z" with the configured
+ * volume driver (the naming used by NFS volume plugins such as docker-volume-netshare). Volume
+ * names only depend on the workspace and the container path: a restarted workspace reattaches its
+ * existing volume instead of recreating and re-syncing it. Other binds (docker socket, agents...)
+ * are kept as they are.
+ */
+public class NFSVolumePlanner {
+
+  /** Default volume driver. */
+  public static final String DEFAULT_VOLUME_DRIVER = "nfs";
+
+  /** Default container paths moved to NFS. */
+  public static final String DEFAULT_CONTAINER_PATHS = "/projects";
+
+  private final String volumeDriver;
+  private final String volumePrefix;
+  private final String mountOptions;
+  private final Set<String> containerPaths;
+
+  /**
+   * @param volumeDriver name of the Docker volume driver
+   * @param server NFS server, host name or IP
+   * @param exportPath path exported by the NFS server, holding a directory per workspace
+   * @param mountOptions Docker mount options appended to the mode of the rewritten binds (e.g.
+   *     "nocopy"), may be null; NFS protocol options are set in the volume driver configuration
+   * @param containerPaths comma separated container paths to move to NFS
+   */
+  public NFSVolumePlanner(
+      String volumeDriver,
+      String server,
+      String exportPath,
+      String mountOptions,
+      String containerPaths) {
+    checkArgument(!isNullOrEmpty(server), "The NFS server is required");
+    checkArgument(!isNullOrEmpty(exportPath), "The NFS export path is required");
+    this.volumeDriver = volumeDriver;
+    this.volumePrefix = server + '/' + trimSlashes(exportPath) + '/';
+    this.mountOptions = mountOptions == null ? "" : mountOptions.trim();
+    this.containerPaths =
+        ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(containerPaths));
+  }
+
+  /**
+   * Plans the volumes of a workspace container
+   *
+   * @param workspaceId the workspace of the container
+   * @param hostConfig the host configuration of the container, may be null
+   * @return a host configuration using the NFS volume driver, or the given one if none of its binds
+   *     is moved to NFS
+   */
+  public HostConfig plan(String workspaceId, HostConfig hostConfig) {
+    if (hostConfig == null || hostConfig.getBinds() == null) {
+      return hostConfig;
+    }
+    final String[] binds = hostConfig.getBinds();
+    String[] planned = null;
+    for (int i = 0; i < binds.length; i++) {
+      final String bind = plan(workspaceId, binds[i]);
+      if (bind != null) {
+        if (planned == null) {
+          planned = binds.clone();
+        }
+        planned[i] = bind;
+      }
+    }
+    if (planned == null) {
+      return hostConfig;
+    }
+    final NFSHostConfig nfsHostConfig = new NFSHostConfig(hostConfig);
+    nfsHostConfig.setBinds(planned);
+    nfsHostConfig.setVolumeDriver(volumeDriver);
+    return nfsHostConfig;
+  }
+
+  /**
+   * @return the bind rewritten as a volume of the driver, or null if it is kept as it is
+   */
+  private String plan(String workspaceId, String bind) {
+    // source:target[:mode]
+    final int targetStart = bind.indexOf(':');
+    if (targetStart < 0 || !bind.startsWith("/")) {
+      return null;
+    }
+    final int modeStart = bind.indexOf(':', targetStart + 1);
+    final String target =
+        modeStart < 0 ? bind.substring(targetStart + 1) : bind.substring(targetStart + 1, modeStart);
+    if (!containerPaths.contains(target)) {
+      return null;
+    }
+    final String mode = modeStart < 0 ? "" : bind.substring(modeStart + 1);
+    // the same volume on every start of the workspace
+    final StringBuilder volume =
+        new StringBuilder(volumePrefix)
+            .append(workspaceId)
+            .append(target)
+            .append(':')
+            .append(target);
+    if (!mode.isEmpty() || !mountOptions.isEmpty()) {
+      volume.append(':').append(mode);
+      if (!mode.isEmpty() && !mountOptions.isEmpty()) {
+        volume.append(',');
+      }
+      volume.append(mountOptions);
+    }
+    return volume.toString();
+  }
+
+  private static String trimSlashes(String path) {
+    int start = 0;
+    int end = path.length();
+    while (start < end && path.charAt(start) == '/') {
+      start++;
+    }
+    while (end > start && path.charAt(end - 1) == '/') {
+      end--;
+    }
+    return path.substring(start, end);
+  }
+}
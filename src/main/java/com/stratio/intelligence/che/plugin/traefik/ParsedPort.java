@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+/** An exposed port under the form "22/tcp", split once into its number and protocol. */
+public final class ParsedPort {
+
+  private final String value;
+  private final String port;
+  private final String protocol;
+
+  private ParsedPort(String value, String port, String protocol) {
+    this.value = value;
+    this.port = port;
+    this.protocol = protocol;
+  }
+
+  /**
+   * Parses an exposed port
+   *
+   * @param value the port under the form "22/tcp", or "22"
+   * @return the parsed port, with the tcp protocol if none is set
+   */
+  public static ParsedPort of(String value) {
+    final int slash = value.indexOf('/');
+    return slash < 0
+        ? new ParsedPort(value, value, "tcp")
+        : new ParsedPort(value, value.substring(0, slash), value.substring(slash + 1));
+  }
+
+  /** @return the port under the form "22/tcp" */
+  public String getValue() {
+    return value;
+  }
+
+  /** @return the port number, e.g. "22" */
+  public String getPort() {
+    return port;
+  }
+
+  /** @return the protocol, e.g. "tcp" */
+  public String getProtocol() {
+    return protocol;
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routes generated by the plugin, indexed by container id, container name and workspace, so that
+ * they can be removed with their container and reconciled with the live containers.
+ */
+public class RouteIndex {
+
+  /** Routes of a created container. */
+  public static final class Entry {
+
+    private final String containerId;
+    private final String containerName;
+    private final String workspaceId;
+    private final List<TraefikRoute> routes;
+    private final long createdNanos;
+
+    Entry(
+        String containerId,
+        String containerName,
+        String workspaceId,
+        List<TraefikRoute> routes,
+        long createdNanos) {
+      this.containerId = containerId;
+      this.containerName = containerName;
+      this.workspaceId = workspaceId;
+      this.routes = Collections.unmodifiableList(routes);
+      this.createdNanos = createdNanos;
+    }
+
+    public String getContainerId() {
+      return containerId;
+    }
+
+    public String getContainerName() {
+      return containerName;
+    }
+
+    /** @return the workspace of the container, null if not started by a workspace */
+    public String getWorkspaceId() {
+      return workspaceId;
+    }
+
+    public List<TraefikRoute> getRoutes() {
+      return routes;
+    }
+
+    /** @return when the container was indexed, from {@link System#nanoTime()} */
+    public long getCreatedNanos() {
+      return createdNanos;
+    }
+  }
+
+  /** container id -> routes */
+  private final ConcurrentMap<String, Entry> byId = new ConcurrentHashMap<>();
+
+  /** container name -> container id */
+  private final ConcurrentMap<String, String> ids = new ConcurrentHashMap<>();
+
+  /** workspace id -> container ids */
+  private final ConcurrentMap<String, Set<String>> byWorkspace = new ConcurrentHashMap<>();
+
+  /**
+   * Indexes, or replaces, the routes of a created container
+   *
+   * @param containerId id of the container
+   * @param containerName name of the container, without leading '/'
+   * @param workspaceId workspace of the container, may be null
+   * @param routes the routes of the container
+   */
+  public void put(
+      String containerId, String containerName, String workspaceId, List<TraefikRoute> routes) {
+    final Entry previous =
+        byId.put(
+            containerId,
+            new Entry(containerId, containerName, workspaceId, routes, System.nanoTime()));
+    if (previous != null) {
+      unlink(previous);
+    }
+    ids.put(containerName, containerId);
+    if (workspaceId != null) {
+      byWorkspace.computeIfAbsent(workspaceId, k -> ConcurrentHashMap.newKeySet()).add(containerId);
+    }
+  }
+
+  /**
+   * Removes the routes of a container
+   *
+   * @param container id or name of the container, a leading '/' is ignored
+   * @return the removed routes, null if the container is not indexed
+   */
+  public Entry remove(String container) {
+    final String key = container.startsWith("/") ? container.substring(1) : container;
+    String containerId = ids.get(key);
+    if (containerId == null) {
+      containerId = key;
+    }
+    final Entry entry = byId.remove(containerId);
+    if (entry != null) {
+      unlink(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * @param container id or name of the container, a leading '/' is ignored
+   * @return the routes of the container, null if the container is not indexed
+   */
+  public Entry get(String container) {
+    final String key = container.startsWith("/") ? container.substring(1) : container;
+    final String containerId = ids.get(key);
+    return byId.get(containerId == null ? key : containerId);
+  }
+
+  /**
+   * @param workspaceId id of the workspace
+   * @return ids of the indexed containers of the workspace
+   */
+  public Set<String> getWorkspaceContainers(String workspaceId) {
+    final Set<String> containers = byWorkspace.get(workspaceId);
+    return containers == null
+        ? Collections.emptySet()
+        : Collections.unmodifiableSet(containers);
+  }
+
+  /** @return the indexed containers, a weakly consistent view */
+  public Collection<Entry> entries() {
+    return Collections.unmodifiableCollection(byId.values());
+  }
+
+  /** @return number of indexed containers */
+  public int size() {
+    return byId.size();
+  }
+
+  /** Removes the name and workspace links of an entry that is no longer indexed by id. */
+  private void unlink(Entry entry) {
+    ids.remove(entry.getContainerName(), entry.getContainerId());
+    if (entry.getWorkspaceId() != null) {
+      byWorkspace.computeIfPresent(
+          entry.getWorkspaceId(),
+          (workspaceId, containers) -> {
+            containers.remove(entry.getContainerId());
+            return containers.isEmpty() ? null : containers;
+          });
+    }
+  }
+}
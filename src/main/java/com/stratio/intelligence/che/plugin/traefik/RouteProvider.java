@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Publishes the routes of the containers to a Traefik dynamic configuration provider (file, KV
+ * store...) instead of relying on the Traefik Docker provider discovering container labels. Routes
+ * are published and removed incrementally, one container at a time.
+ */
+public interface RouteProvider {
+
+  /**
+   * Publishes, or replaces, the routes of a container
+   *
+   * @param containerName name of the container, reachable by Traefik on the Docker network
+   * @param routes the routes of the container
+   * @throws IOException if the routes cannot be written
+   */
+  void publish(String containerName, List<TraefikRoute> routes) throws IOException;
+
+  /**
+   * Removes the routes of a container, if any
+   *
+   * @param containerName name of the container
+   * @throws IOException if the routes cannot be removed
+   */
+  void remove(String containerName) throws IOException;
+}
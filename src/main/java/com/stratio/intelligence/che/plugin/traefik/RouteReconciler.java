@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.stratio.intelligence.che.plugin.traefik.TraefikMetrics.Phase;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ContainerListEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically diffs the {@link RouteIndex} against the running containers and purges the routes of
+ * the containers that crashed or were removed outside Che. Reconciliation is incremental: only the
+ * routes of the missing containers are removed from the index and the {@link RouteProvider}.
+ * Containers created during the last interval are kept, they may be created but not started yet.
+ */
+public class RouteReconciler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RouteReconciler.class);
+
+  /** Default period between reconciliations. */
+  public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+  private final RouteIndex routeIndex;
+  private final RouteProvider routeProvider;
+  private final TraefikMetrics metrics;
+  private final long intervalSeconds;
+  private final long gracePeriodNanos;
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  /**
+   * @param routeIndex the routes generated by the plugin
+   * @param routeProvider the provider publishing the routes, null if published as Docker labels
+   * @param metrics the reconciliation duration and purged containers
+   * @param intervalSeconds period between reconciliations, and minimum age of a purged container
+   */
+  public RouteReconciler(
+      RouteIndex routeIndex,
+      RouteProvider routeProvider,
+      TraefikMetrics metrics,
+      long intervalSeconds) {
+    this.routeIndex = routeIndex;
+    this.routeProvider = routeProvider;
+    this.metrics = metrics;
+    this.intervalSeconds = intervalSeconds;
+    this.gracePeriodNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+  }
+
+  /**
+   * Schedules the reconciliation, once
+   *
+   * @param connector the connector listing the running containers
+   */
+  public void start(DockerConnector connector) {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    final ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("traefik-route-reconciler")
+                .setDaemon(true)
+                .build());
+    executor.scheduleWithFixedDelay(
+        () -> {
+          try {
+            reconcile(connector);
+          } catch (Exception e) {
+            LOG.warn("Unable to reconcile the Traefik routes: {}", e.getMessage());
+          }
+        },
+        intervalSeconds,
+        intervalSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  /**
+   * Purges the routes of the indexed containers that are not running
+   *
+   * @param connector the connector listing the running containers
+   * @return number of purged containers
+   * @throws IOException if the running containers cannot be listed
+   */
+  public int reconcile(DockerConnector connector) throws IOException {
+    final long start = System.nanoTime();
+    if (routeIndex.size() == 0) {
+      metrics.record(Phase.RECONCILE, start);
+      return 0;
+    }
+
+    final Set<String> running = new HashSet<>();
+    for (ContainerListEntry container : connector.listContainers()) {
+      running.add(container.getId());
+    }
+
+    int purged = 0;
+    for (RouteIndex.Entry entry : routeIndex.entries()) {
+      // recently created containers may not be started yet
+      if (start - entry.getCreatedNanos() < gracePeriodNanos
+          || running.contains(entry.getContainerId())) {
+        continue;
+      }
+      if (routeIndex.remove(entry.getContainerId()) == null) {
+        continue;
+      }
+      purged++;
+      if (routeProvider != null) {
+        try {
+          routeProvider.remove(entry.getContainerName());
+        } catch (IOException e) {
+          LOG.warn(
+              "Unable to remove the routes of container {}: {}",
+              entry.getContainerName(),
+              e.getMessage());
+        }
+      }
+    }
+    if (purged > 0) {
+      LOG.info("Purged the Traefik routes of {} orphan containers", purged);
+    }
+    metrics.orphans(purged);
+    metrics.record(Phase.RECONCILE, start);
+    return purged;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.List;
+
+/**
+ * Spreads the routes over several Traefik entry points, or Traefik instances, by consistent hashing
+ * of the workspace id: every container of a workspace goes to the same shard and adding a shard at
+ * the end of the list only moves about {@code 1/n} of the workspaces.
+ *
+ * <p>Shards are configured as a comma separated list of {@code entryPoint[:tag]}. The entry point
+ * is set on the frontends of the routes; the optional tag is added as {@code traefik.tags} label so
+ * that each Traefik instance only serves its shard ({@code --constraints=tag==<tag>}).
+ */
+public class RouteSharding {
+
+  /** Default shards: every route on the "http" entry point. */
+  public static final String DEFAULT_SHARDS = "http";
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  /** Entry point and Traefik instance tag of a shard. */
+  public static final class Shard {
+
+    private final String entryPoint;
+    private final String tag;
+
+    Shard(String entryPoint, String tag) {
+      this.entryPoint = entryPoint;
+      this.tag = tag;
+    }
+
+    /** @return the entry point of the frontends */
+    public String getEntryPoint() {
+      return entryPoint;
+    }
+
+    /** @return the tag of the Traefik instance, null if every instance serves the shard */
+    public String getTag() {
+      return tag;
+    }
+
+    @Override
+    public String toString() {
+      return tag == null ? entryPoint : entryPoint + ':' + tag;
+    }
+  }
+
+  private final List<Shard> shards;
+
+  /** @param shards comma separated list of {@code entryPoint[:tag]}, in a stable order */
+  public RouteSharding(String shards) {
+    final ImmutableList.Builder<Shard> builder = ImmutableList.builder();
+    for (String shard : Splitter.on(',').trimResults().omitEmptyStrings().split(shards)) {
+      final int colon = shard.indexOf(':');
+      builder.add(
+          colon < 0
+              ? new Shard(shard, null)
+              : new Shard(shard.substring(0, colon), shard.substring(colon + 1)));
+    }
+    this.shards = builder.build();
+    checkArgument(!this.shards.isEmpty(), "At least one route shard is required");
+  }
+
+  /**
+   * Gets the shard of a workspace
+   *
+   * @param key the workspace id, or the container name of containers outside workspaces
+   * @return the shard serving the routes of the key, the first one if the key is null
+   */
+  public Shard shard(String key) {
+    if (shards.size() == 1 || key == null) {
+      return shards.get(0);
+    }
+    return shards.get(
+        Hashing.consistentHash(HASH_FUNCTION.hashString(key, UTF_8), shards.size()));
+  }
+
+  /** @return the configured shards */
+  public List<Shard> getShards() {
+    return shards;
+  }
+}
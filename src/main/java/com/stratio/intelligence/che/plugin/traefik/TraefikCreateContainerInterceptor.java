@@ -5,23 +5,24 @@
  */
 package com.stratio.intelligence.che.plugin.traefik;
 
-import static java.lang.String.format;
-
-import com.google.common.collect.ImmutableSet;
 import com.google.inject.name.Named;
+import com.stratio.intelligence.che.plugin.traefik.InjectionRules.Injection;
+import com.stratio.intelligence.che.plugin.traefik.TraefikMetrics.Phase;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
-import org.apache.commons.lang.ArrayUtils;
 import org.eclipse.che.commons.annotation.Nullable;
 import org.eclipse.che.plugin.docker.client.DockerConnector;
 import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
-import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.json.ContainerCreated;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
 import org.eclipse.che.plugin.docker.client.params.CreateContainerParams;
-import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
 import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy.RenderingEvaluation;
 import org.eclipse.che.plugin.docker.machine.ServerEvaluationStrategy;
 import org.eclipse.che.plugin.docker.machine.ServerEvaluationStrategyProvider;
 import org.slf4j.Logger;
@@ -39,12 +40,74 @@ public class TraefikCreateContainerInterceptor implements MethodInterceptor {
   private static final Logger LOG =
       LoggerFactory.getLogger(TraefikCreateContainerInterceptor.class);
 
+  /*
+   * The fields below are only written by the setters, under the lock of the interceptor, which then
+   * publish them as a new immutable Settings. Interceptions only read the settings, once.
+   */
+
   /** Inject the server evaluation strategy provider. */
   private ServerEvaluationStrategyProvider serverEvaluationStrategyProvider;
 
+  /** Server evaluation strategy resolved once, null until used or refreshed. */
+  private volatile ResolvedStrategy resolvedStrategy;
+
+  /** Routes are added only when enabled, can be toggled at runtime. */
+  private boolean enabled = true;
+
   /** Template. */
   private String template;
 
+  /** Template of the Che configuration. */
+  private String defaultTemplate;
+
+  /** Template set at runtime, replacing the one of the Che configuration, null if none. */
+  private String templateOverride;
+
+  /** Template parsed once, null if it has to be rendered for each port. */
+  private CompiledRouteTemplate compiledTemplate;
+
+  /** Inspects images, once per image, in background. */
+  private AsyncImageInspector imageInspector =
+      new AsyncImageInspector(
+          new ImageMetadataCache(
+              ImageMetadataCache.DEFAULT_MAXIMUM_SIZE,
+              ImageMetadataCache.DEFAULT_TIME_TO_LIVE_SECONDS,
+              TimeUnit.SECONDS),
+          AsyncImageInspector.DEFAULT_THREADS,
+          AsyncImageInspector.DEFAULT_TIMEOUT_MS,
+          AsyncImageInspector.DEFAULT_LABELS_TIMEOUT_MS);
+
+  /** Rewrites the workspace binds into NFS volumes, null if disabled. */
+  private NFSVolumePlanner nfsVolumePlanner;
+
+  /** Publishes the routes instead of container labels, null to use Docker labels. */
+  private RouteProvider routeProvider;
+
+  /** Entry points and Traefik instances the workspaces are spread over. */
+  private RouteSharding routeSharding = new RouteSharding(RouteSharding.DEFAULT_SHARDS);
+
+  /** Health check, circuit breaker, connections and weight of the backends, null if none. */
+  private BackendRules backendRules;
+
+  /** Environment, command and user changes of the containers, null if none. */
+  private InjectionRules injectionRules;
+
+  /** Routes generated for the created containers. */
+  private RouteIndex routeIndex = new RouteIndex();
+
+  /** Purges the routes of the containers removed outside Che, null if disabled. */
+  private RouteReconciler routeReconciler;
+
+  /** Timers and counters of the interception. */
+  private TraefikMetrics metrics = new TraefikMetrics();
+
+  /** Sampled summary and debug logging of the interception. */
+  private InterceptionLogger interceptionLogger =
+      new InterceptionLogger(InterceptionLogger.DEFAULT_SAMPLE_RATE);
+
+  /** Snapshot of the configuration above, replaced as a whole by the setters. */
+  private volatile Settings settings = new Settings(this);
+
   /**
    * Grab labels of the config and from image to get all exposed ports and the labels defined if any
    *
@@ -54,107 +117,337 @@ public class TraefikCreateContainerInterceptor implements MethodInterceptor {
    */
   @Override
   public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-
-    ServerEvaluationStrategy serverEvaluationStrategy = serverEvaluationStrategyProvider.get();
-    // Abort if custom server evaluation strategy is not enabled.
-    if (!(CustomServerEvaluationStrategy.class.isInstance(serverEvaluationStrategy))) {
-      return methodInvocation.proceed();
-    }
-    final CustomServerEvaluationStrategy customServerEvaluationStrategy =
-        (CustomServerEvaluationStrategy) serverEvaluationStrategy;
-
-    // Get the connector
-    DockerConnector dockerConnector = (DockerConnector) methodInvocation.getThis();
+    final long start = System.nanoTime();
+    // the same configuration is used for the whole interception, even if it changes meanwhile
+    final Settings settings = this.settings;
 
     // only one parameter which is CreateContainerParams
     CreateContainerParams createContainerParams =
         (CreateContainerParams) methodInvocation.getArguments()[0];
 
-    // Grab container configuration
-    ContainerConfig containerConfig = createContainerParams.getContainerConfig();
+    // Abort if the plug-in or the custom server evaluation strategy is not enabled.
+    if (!settings.enabled) {
+      return methodInvocation.proceed();
+    }
+    final CustomServerEvaluationStrategy customServerEvaluationStrategy = getCustomStrategy();
+    if (customServerEvaluationStrategy == null) {
+      return methodInvocation.proceed();
+    }
 
-    /** test */
-    // Env vars
-    LOG.info("Container Initial Env: \n{}", containerConfig.getEnv());
+    final String workspaceId = workspaceId(createContainerParams.getContainerConfig().getEnv());
+    final TraefikMetrics metrics = settings.metrics;
+    metrics.invocation();
+    long phaseStart = metrics.record(Phase.STRATEGY, start);
 
-    // TODO get from DOCKER ENV_VARIABLE
-    String[] newEnv = {"STRATIO_VAULT_PATH=/path/to/vault"};
-    containerConfig.setEnv((String[]) ArrayUtils.addAll(containerConfig.getEnv(), newEnv));
+    final List<TraefikRoute> routes;
+    try {
+      routes =
+          createRoutes(
+              settings,
+              methodInvocation,
+              createContainerParams,
+              workspaceId,
+              customServerEvaluationStrategy,
+              start,
+              phaseStart);
+    } catch (Exception e) {
+      metrics.error();
+      throw e;
+    }
 
-    String[] cmd = {
-      "/bin/sh", "-c", "sleep 20; echo $STRATIO_VAULT_PATH > /tmp/stratio.file; tail -f /dev/null"
-    };
+    phaseStart = System.nanoTime();
+    final Object result;
+    try {
+      result = methodInvocation.proceed();
+    } catch (Throwable t) {
+      metrics.proceedError();
+      throw t;
+    } finally {
+      metrics.record(Phase.PROCEED, phaseStart);
+      metrics.record(Phase.TOTAL, start);
+    }
 
-    LOG.info("Container Initial Cmd: \n{}", containerConfig.getCmd());
+    // the container exists, index and publish its routes
+    if (result instanceof ContainerCreated) {
+      settings.routeIndex.put(
+          ((ContainerCreated) result).getId(),
+          createContainerParams.getContainerName(),
+          workspaceId,
+          routes);
+    }
+    if (settings.routeReconciler != null) {
+      settings.routeReconciler.start((DockerConnector) methodInvocation.getThis());
+    }
+    if (settings.routeProvider != null) {
+      try {
+        settings.routeProvider.publish(createContainerParams.getContainerName(), routes);
+      } catch (IOException e) {
+        metrics.error();
+        LOG.warn(
+            "Unable to publish the routes of container {}: {}",
+            createContainerParams.getContainerName(),
+            e.getMessage());
+      }
+    }
+    return result;
+  }
 
-    containerConfig.setCmd(cmd);
+  /**
+   * Creates the Traefik routes of the container and, unless they are published by a {@link
+   * RouteProvider}, adds them as labels to the configuration of the container. Every change of the
+   * configuration is computed first and applied once, at the end.
+   *
+   * @param settings the configuration of the interception
+   * @param methodInvocation intercepting data of createContainer method on {@link DockerConnector}
+   * @param createContainerParams the parameters of the createContainer call
+   * @param workspaceId the workspace of the container, null if it does not belong to a workspace
+   * @param customServerEvaluationStrategy the strategy rendering the routes
+   * @param start start of the interception, from {@link System#nanoTime()}
+   * @param phaseStart start of the first phase, from {@link System#nanoTime()}
+   * @return the routes of the container
+   * @throws InterruptedException if interrupted while waiting for the image inspection
+   */
+  private List<TraefikRoute> createRoutes(
+      Settings settings,
+      MethodInvocation methodInvocation,
+      CreateContainerParams createContainerParams,
+      String workspaceId,
+      CustomServerEvaluationStrategy customServerEvaluationStrategy,
+      long start,
+      long phaseStart)
+      throws InterruptedException {
+    final TraefikMetrics metrics = settings.metrics;
+    final AsyncImageInspector imageInspector = settings.imageInspector;
 
-    /** end-test */
-    containerConfig.setUser("root");
+    // Get the connector
+    DockerConnector dockerConnector = (DockerConnector) methodInvocation.getThis();
 
-    /**
-     * TODO change withVolumeDriver("nfs") as a DOCKER ENV_VARIABLE NFSHostConfig nfsHostConfig =
-     * new NFSHostConfig(containerConfig.getHostConfig()); nfsHostConfig.setVolumeDriver("");
-     * containerConfig.setHostConfig(nfsHostConfig);
-     */
-    LOG.info("Container Config: \n{}", containerConfig.toString());
+    // Grab container configuration
+    ContainerConfig containerConfig = createContainerParams.getContainerConfig();
 
     String image = containerConfig.getImage();
 
+    // Start the inspection of the image (done only once per image) while the container is prepared
+    final CompletableFuture<ImageMetadata> inspection =
+        imageInspector.inspect(dockerConnector, workspaceId, image);
+
+    settings.interceptionLogger.containerConfig(
+        createContainerParams.getContainerName(), containerConfig);
+
+    // Move the workspace binds to NFS volumes, if enabled
+    final HostConfig hostConfig =
+        settings.nfsVolumePlanner != null && workspaceId != null
+            ? settings.nfsVolumePlanner.plan(workspaceId, containerConfig.getHostConfig())
+            : null;
+
     // first, get labels defined in the container configuration
     Map<String, String> containerLabels = containerConfig.getLabels();
+    phaseStart = metrics.record(Phase.PREPARE, phaseStart);
+
+    // Also, get labels from the image itself, or none if the daemon is too slow
+    final InjectionRules injectionRules = settings.injectionRules;
+    ImageMetadata imageMetadata = imageInspector.await(inspection, image);
+    if (imageMetadata == ImageMetadata.EMPTY
+        && injectionRules != null
+        && injectionRules.needsImageLabels(image, containerLabels)) {
+      // the labels of the image may decide the injection rules, wait for them a bit longer
+      imageMetadata = imageInspector.awaitLabels(inspection, image);
+      if (imageMetadata == ImageMetadata.EMPTY) {
+        metrics.injectionFallback();
+        LOG.warn(
+            "Injection rules of container {} matched without the labels of image {}",
+            createContainerParams.getContainerName(),
+            image);
+      }
+    }
+    if (imageMetadata == ImageMetadata.EMPTY) {
+      metrics.inspectFallback();
+    }
+    Map<String, String> imageLabels = imageMetadata.getLabels();
+    phaseStart = metrics.record(Phase.INSPECT, phaseStart);
+
+    // Now merge all labels, ports and env, without copying the labels and ports
+    final Map<String, String> allLabels = new MergedLabels(containerLabels, imageLabels);
+    // ports are under the form "22/tcp"
+    final MergedExposedPorts allExposedPorts =
+        new MergedExposedPorts(containerConfig.getExposedPorts().keySet(), imageMetadata);
+    // env, cmd and user changes of the injection rules matching the container, if any
+    final Injection injection =
+        injectionRules == null ? null : injectionRules.match(image, allLabels);
+    final String[] containerEnv =
+        injection == null ? containerConfig.getEnv() : injection.getEnv(containerConfig.getEnv());
+    final String[] allEnv = concat(containerEnv, imageMetadata.getEnv());
+    phaseStart = metrics.record(Phase.MERGE, phaseStart);
 
-    // Also, get labels from the image itself
-    final ImageInfo imageInfo = dockerConnector.inspectImage(InspectImageParams.create(image));
-    Map<String, String> imageLabels = imageInfo.getConfig().getLabels();
-
-    // Now merge all labels
-    final Map<String, String> allLabels = new HashMap<>(containerLabels);
-    if (imageLabels != null) {
-      // If image has some labels, merge them
-      allLabels.putAll(imageLabels);
-    }
-
-    // Get all ports exposed by the container and by the image
-    // it is under the form "22/tcp"
-    final Set<String> allExposedPorts =
-        ImmutableSet.<String>builder()
-            .addAll(containerConfig.getExposedPorts().keySet())
-            .addAll(imageInfo.getConfig().getExposedPorts().keySet())
-            .build();
-    final String[] allEnv =
-        Stream.concat(
-                Arrays.stream(containerConfig.getEnv()),
-                Arrays.stream(imageInfo.getConfig().getEnv()))
-            .toArray(String[]::new);
-
-    CustomServerEvaluationStrategy.RenderingEvaluation renderingEvaluation =
+    final RenderingEvaluation renderingEvaluation =
         customServerEvaluationStrategy.getOfflineRenderingEvaluation(
             allLabels, allExposedPorts, allEnv);
 
-    // portValue is under format <port-number>/<tcp>
-    allExposedPorts.forEach(
-        (portValue) -> {
-          final String serviceName = renderingEvaluation.render("service-<serverName>", portValue);
-          final String port = portValue.split("/")[0];
+    // every container of a workspace is served by the same shard
+    final RouteSharding.Shard shard =
+        settings.routeSharding.shard(
+            workspaceId != null ? workspaceId : createContainerParams.getContainerName());
 
-          String hostnameAndPort = renderingEvaluation.render(this.template, portValue);
+    final CompiledRouteTemplate compiledTemplate = settings.compiledTemplate;
+    final BackendRules backendRules = settings.backendRules;
+    String[] containerValues = null;
+    final List<TraefikRoute> routes = new ArrayList<>(allExposedPorts.size());
 
-          /**
-           * CHE_DOCKER_SERVER__EVALUATION__STRATEGY_CUSTOM_TEMPLATE hostname/<final_endpoint_id> or
-           * host:port/<final_endpoint_id>
-           */
-          String[] elements = hostnameAndPort.split("/");
-          String hostName = elements[0];
-          final String serviceId = (elements.length > 1) ? elements[1] : "";
-          final String path = format("PathPrefixStrip:/%s", serviceId);
-          containerLabels.put(format("traefik.%s.port", serviceName), port);
-          containerLabels.put(format("traefik.%s.frontend.entryPoints", serviceName), "http");
-          containerLabels.put(format("traefik.%s.frontend.rule", serviceName), path);
-          containerLabels.put("traefik.frontend.rule", createContainerParams.getContainerName());
-        });
+    for (ParsedPort parsedPort : allExposedPorts.parsed()) {
+      // portValue is under format <port-number>/<tcp>
+      final String portValue = parsedPort.getValue();
+      final String serverName = renderingEvaluation.render("<serverName>", portValue);
+      final String port = parsedPort.getPort();
 
-    return methodInvocation.proceed();
+      /**
+       * CHE_DOCKER_SERVER__EVALUATION__STRATEGY_CUSTOM_TEMPLATE hostname/<final_endpoint_id> or
+       * host:port/<final_endpoint_id>
+       */
+      final String serviceId;
+      if (compiledTemplate != null) {
+        if (containerValues == null) {
+          // only serverName depends on the port in a compiled template
+          containerValues = compiledTemplate.renderContainerValues(renderingEvaluation, portValue);
+        }
+        serviceId = compiledTemplate.renderServiceId(containerValues, serverName);
+      } else {
+        serviceId = renderServiceId(settings.template, renderingEvaluation, portValue);
+      }
+      routes.add(
+          new TraefikRoute(
+              "service-" + serverName,
+              port,
+              shard.getEntryPoint(),
+              "PathPrefixStrip:/" + serviceId,
+              backendRules == null
+                  ? null
+                  : backendRules.settings(
+                      serverName,
+                      hostConfig != null ? hostConfig : containerConfig.getHostConfig())));
+    }
+
+    // with a route provider, Traefik does not read the labels
+    final Map<String, String> traefikLabels = new HashMap<>();
+    if (settings.routeProvider == null && !routes.isEmpty()) {
+      for (TraefikRoute route : routes) {
+        route.addLabels(traefikLabels);
+      }
+      traefikLabels.put("traefik.frontend.rule", createContainerParams.getContainerName());
+      if (shard.getTag() != null) {
+        traefikLabels.put("traefik.tags", shard.getTag());
+      }
+    }
+
+    // Apply the changes to the configuration of the container, once
+    if (injection != null) {
+      containerConfig.setEnv(containerEnv);
+      if (injection.getCmd() != null) {
+        containerConfig.setCmd(injection.getCmd());
+      }
+      if (injection.getUser() != null) {
+        containerConfig.setUser(injection.getUser());
+      }
+    }
+    if (hostConfig != null) {
+      containerConfig.setHostConfig(hostConfig);
+    }
+    if (!traefikLabels.isEmpty()) {
+      containerLabels.putAll(traefikLabels);
+    }
+
+    metrics.routes(routes.size());
+    settings.interceptionLogger.routes(
+        createContainerParams.getContainerName(),
+        image,
+        allExposedPorts.size(),
+        routes.size(),
+        start);
+    metrics.record(Phase.RENDER, phaseStart);
+    return routes;
+  }
+
+  /**
+   * Concatenates the container and image environments
+   *
+   * @param containerEnv environment of the container, may be null
+   * @param imageEnv environment of the image, never null
+   * @return both environments, or one of them as is if the other is empty
+   */
+  static String[] concat(String[] containerEnv, String[] imageEnv) {
+    if (containerEnv == null || containerEnv.length == 0) {
+      return imageEnv;
+    }
+    if (imageEnv.length == 0) {
+      return containerEnv;
+    }
+    final String[] env = new String[containerEnv.length + imageEnv.length];
+    System.arraycopy(containerEnv, 0, env, 0, containerEnv.length);
+    System.arraycopy(imageEnv, 0, env, containerEnv.length, imageEnv.length);
+    return env;
+  }
+
+  /**
+   * Gets the workspace id of a container from its environment
+   *
+   * @param env the environment of the container
+   * @return the workspace id or null if the container does not belong to a workspace
+   */
+  static String workspaceId(String[] env) {
+    if (env != null) {
+      for (String variable : env) {
+        if (variable.startsWith("CHE_WORKSPACE_ID=")) {
+          return variable.substring("CHE_WORKSPACE_ID=".length());
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Renders the whole template to get the endpoint id of a port, used when the template cannot be
+   * compiled
+   *
+   * @param template the template of server evaluation strategy
+   * @param renderingEvaluation the rendering evaluation of the container
+   * @param portValue the port under the form "22/tcp"
+   * @return the endpoint id
+   */
+  private static String renderServiceId(
+      String template, RenderingEvaluation renderingEvaluation, String portValue) {
+    final String[] elements = renderingEvaluation.render(template, portValue).split("/");
+    return (elements.length > 1) ? elements[1] : "";
+  }
+
+  /** @return the server evaluation strategy, resolved on first use */
+  private ResolvedStrategy resolveStrategy() {
+    ResolvedStrategy resolved = resolvedStrategy;
+    if (resolved == null) {
+      resolved = new ResolvedStrategy(settings.serverEvaluationStrategyProvider.get());
+      resolvedStrategy = resolved;
+    }
+    return resolved;
+  }
+
+  /** @return the custom server evaluation strategy, null if another strategy is used */
+  private CustomServerEvaluationStrategy getCustomStrategy() {
+    return resolveStrategy().customStrategy;
+  }
+
+  /**
+   * Resolves the server evaluation strategy again on next use, e.g. after a configuration change
+   */
+  public void refreshStrategy() {
+    resolvedStrategy = null;
+  }
+
+  /**
+   * Enables or disables the Traefik routes, containers are created unchanged when disabled
+   *
+   * @param enabled true to add the routes
+   */
+  public synchronized void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    publish();
   }
 
   /**
@@ -163,9 +456,112 @@ public class TraefikCreateContainerInterceptor implements MethodInterceptor {
    * @param serverEvaluationStrategyProvider
    */
   @Inject
-  protected void setServerEvaluationStrategyProvider(
+  protected synchronized void setServerEvaluationStrategyProvider(
       ServerEvaluationStrategyProvider serverEvaluationStrategyProvider) {
     this.serverEvaluationStrategyProvider = serverEvaluationStrategyProvider;
+    publish();
+    refreshStrategy();
+  }
+
+  /**
+   * Sets the image inspector
+   *
+   * @param imageInspector
+   */
+  protected synchronized void setImageInspector(AsyncImageInspector imageInspector) {
+    this.imageInspector = imageInspector;
+    publish();
+  }
+
+  /**
+   * Sets the planner of the NFS volumes
+   *
+   * @param nfsVolumePlanner the planner or null to keep local binds
+   */
+  protected synchronized void setNfsVolumePlanner(NFSVolumePlanner nfsVolumePlanner) {
+    this.nfsVolumePlanner = nfsVolumePlanner;
+    publish();
+  }
+
+  /**
+   * Sets the dynamic configuration provider of the routes
+   *
+   * @param routeProvider the provider or null to publish the routes as Docker labels
+   */
+  protected synchronized void setRouteProvider(RouteProvider routeProvider) {
+    this.routeProvider = routeProvider;
+    publish();
+  }
+
+  /**
+   * Sets the sharding of the routes over entry points and Traefik instances
+   *
+   * @param routeSharding the shards
+   */
+  protected synchronized void setRouteSharding(RouteSharding routeSharding) {
+    this.routeSharding = routeSharding;
+    publish();
+  }
+
+  /**
+   * Sets the rules of the backend settings
+   *
+   * @param backendRules the rules or null to only route the ports
+   */
+  protected synchronized void setBackendRules(BackendRules backendRules) {
+    this.backendRules = backendRules;
+    publish();
+  }
+
+  /**
+   * Sets the rules changing the environment, command and user of the containers
+   *
+   * @param injectionRules the rules, null or empty to create the containers unchanged
+   */
+  public synchronized void setInjectionRules(InjectionRules injectionRules) {
+    this.injectionRules =
+        injectionRules == null || injectionRules.isEmpty() ? null : injectionRules;
+    publish();
+  }
+
+  /**
+   * Sets the index of the generated routes
+   *
+   * @param routeIndex the index, shared with the removal interceptor and the reconciler
+   */
+  protected synchronized void setRouteIndex(RouteIndex routeIndex) {
+    this.routeIndex = routeIndex;
+    publish();
+  }
+
+  /**
+   * Sets the reconciliation of the generated routes with the running containers
+   *
+   * @param routeReconciler the reconciler, started on the first interception, or null to disable it
+   */
+  protected synchronized void setRouteReconciler(RouteReconciler routeReconciler) {
+    this.routeReconciler = routeReconciler;
+    publish();
+  }
+
+  /**
+   * Sets the metrics of the interception
+   *
+   * @param metrics
+   */
+  protected synchronized void setMetrics(TraefikMetrics metrics) {
+    this.metrics = metrics;
+    publish();
+  }
+
+  /**
+   * Sets the logger of the interception
+   *
+   * @param interceptionLogger
+   */
+  protected synchronized void setInterceptionLogger(InterceptionLogger interceptionLogger) {
+    this.interceptionLogger = interceptionLogger;
+    publish();
   }
 
   /**
@@ -174,11 +570,85 @@ public class TraefikCreateContainerInterceptor implements MethodInterceptor {
    * @param cheDockerCustomExternalTemplate
    */
   @Inject
-  protected void setTemplate(
+  protected synchronized void setTemplate(
       // TODO: change to CHE_DOCKER_SERVER__EVALUATION__STRATEGY_STRATIO_TEMPLATE ( stratio env
       // variable )
       @Nullable @Named("che.docker.server_evaluation_strategy.custom.template")
           String cheDockerCustomExternalTemplate) {
-    this.template = cheDockerCustomExternalTemplate;
+    this.defaultTemplate = cheDockerCustomExternalTemplate;
+    applyTemplate(templateOverride != null ? templateOverride : cheDockerCustomExternalTemplate);
+  }
+
+  /**
+   * Overrides the template of server evaluation strategy at runtime
+   *
+   * @param template the template, or null to restore the configured one
+   */
+  public synchronized void overrideTemplate(String template) {
+    this.templateOverride = template;
+    applyTemplate(template != null ? template : defaultTemplate);
+  }
+
+  private void applyTemplate(String template) {
+    this.template = template;
+    this.compiledTemplate = CompiledRouteTemplate.compile(template);
+    publish();
+  }
+
+  /** Publishes the current configuration to the next interceptions, called under the lock */
+  private void publish() {
+    settings = new Settings(this);
+  }
+
+  /**
+   * Immutable snapshot of the configuration of the interceptor, so the template and its compiled
+   * form, or the provider and the sharding of the routes, always go together.
+   */
+  private static final class Settings {
+
+    private final ServerEvaluationStrategyProvider serverEvaluationStrategyProvider;
+    private final boolean enabled;
+    private final String template;
+    private final CompiledRouteTemplate compiledTemplate;
+    private final AsyncImageInspector imageInspector;
+    private final NFSVolumePlanner nfsVolumePlanner;
+    private final RouteProvider routeProvider;
+    private final RouteSharding routeSharding;
+    private final BackendRules backendRules;
+    private final InjectionRules injectionRules;
+    private final RouteIndex routeIndex;
+    private final RouteReconciler routeReconciler;
+    private final TraefikMetrics metrics;
+    private final InterceptionLogger interceptionLogger;
+
+    private Settings(TraefikCreateContainerInterceptor interceptor) {
+      this.serverEvaluationStrategyProvider = interceptor.serverEvaluationStrategyProvider;
+      this.enabled = interceptor.enabled;
+      this.template = interceptor.template;
+      this.compiledTemplate = interceptor.compiledTemplate;
+      this.imageInspector = interceptor.imageInspector;
+      this.nfsVolumePlanner = interceptor.nfsVolumePlanner;
+      this.routeProvider = interceptor.routeProvider;
+      this.routeSharding = interceptor.routeSharding;
+      this.backendRules = interceptor.backendRules;
+      this.injectionRules = interceptor.injectionRules;
+      this.routeIndex = interceptor.routeIndex;
+      this.routeReconciler = interceptor.routeReconciler;
+      this.metrics = interceptor.metrics;
+      this.interceptionLogger = interceptor.interceptionLogger;
+    }
+  }
+
+  /** The custom view of a resolved strategy, so the type check is done once. */
+  private static final class ResolvedStrategy {
+
+    private final CustomServerEvaluationStrategy customStrategy;
+
+    private ResolvedStrategy(ServerEvaluationStrategy strategy) {
+      this.customStrategy =
+          strategy instanceof CustomServerEvaluationStrategy
+              ? (CustomServerEvaluationStrategy) strategy
+              : null;
+    }
   }
 }
@@ -6,11 +6,21 @@
 package com.stratio.intelligence.che.plugin.traefik;
 
 import static com.google.inject.matcher.Matchers.subclassesOf;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.Boolean.parseBoolean;
+import static java.lang.Double.parseDouble;
+import static java.lang.Long.parseLong;
 import static java.lang.System.getenv;
 import static org.eclipse.che.inject.Matchers.names;
 
+import com.google.common.base.Splitter;
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.che.plugin.docker.client.DockerConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,19 +33,240 @@ public class TraefikDockerModule extends AbstractModule {
   /** Configure the traefik components */
   @Override
   protected void configure() {
-    // add logic only if plug-in is enabled.
-    if (parseBoolean(getenv("CHE_PLUGIN_TRAEFIK_STRATIO_ENABLED"))) {
+    // add logic only if plug-in is enabled, or may be enabled by its configuration file.
+    final boolean enabled = parseBoolean(getenv("CHE_PLUGIN_TRAEFIK_STRATIO_ENABLED"));
+    final String configurationFile =
+        getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_CONFIG_FILE", null);
+    if (enabled || configurationFile != null) {
+      // image labels, exposed ports and env are inspected once per image
+      final ImageMetadataCache imageMetadataCache =
+          new ImageMetadataCache(
+              getenvAsLong(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_IMAGE_CACHE_SIZE",
+                  ImageMetadataCache.DEFAULT_MAXIMUM_SIZE),
+              getenvAsLong(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_IMAGE_CACHE_TTL_SECONDS",
+                  ImageMetadataCache.DEFAULT_TIME_TO_LIVE_SECONDS),
+              TimeUnit.SECONDS);
+      bind(ImageMetadataCache.class).toInstance(imageMetadataCache);
+
+      // stack images inspected at startup, and the cache kept across restarts
+      final String prewarmImages =
+          getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_PREWARM_IMAGES", null);
+      final String imageSnapshot =
+          getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_IMAGE_SNAPSHOT_FILE", null);
+      if (prewarmImages != null || imageSnapshot != null) {
+        final ImageIndexWarmer imageIndexWarmer =
+            new ImageIndexWarmer(
+                imageMetadataCache,
+                imageSnapshot == null ? null : Paths.get(imageSnapshot),
+                prewarmImages == null
+                    ? Collections.emptyList()
+                    : Splitter.on(',').trimResults().omitEmptyStrings().splitToList(prewarmImages),
+                (int)
+                    getenvAsLong(
+                        "CHE_PLUGIN_TRAEFIK_STRATIO_PREWARM_CONCURRENCY",
+                        ImageIndexWarmer.DEFAULT_CONCURRENCY));
+        imageIndexWarmer.loadSnapshot();
+        // started in background once the Docker connector is injected
+        requestInjection(imageIndexWarmer);
+      }
+
+      // per-phase timers and counters, exposed through JMX
+      final TraefikMetrics metrics = new TraefikMetrics();
+      metrics.register(ManagementFactory.getPlatformMBeanServer(), imageMetadataCache);
+      bind(TraefikMetrics.class).toInstance(metrics);
+
       // add an interceptor to intercept createContainer calls and then get the final labels
       final TraefikCreateContainerInterceptor traefikCreateContainerInterceptor =
           new TraefikCreateContainerInterceptor();
-      requestInjection(traefikCreateContainerInterceptor);
+      final AsyncImageInspector imageInspector =
+          new AsyncImageInspector(
+              imageMetadataCache,
+              (int)
+                  getenvAsLong(
+                      "CHE_PLUGIN_TRAEFIK_STRATIO_INSPECT_THREADS",
+                      AsyncImageInspector.DEFAULT_THREADS),
+              getenvAsLong(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_INSPECT_TIMEOUT_MS",
+                  AsyncImageInspector.DEFAULT_TIMEOUT_MS),
+              getenvAsLong(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_INSPECT_LABELS_TIMEOUT_MS",
+                  AsyncImageInspector.DEFAULT_LABELS_TIMEOUT_MS));
+      traefikCreateContainerInterceptor.setImageInspector(imageInspector);
+      traefikCreateContainerInterceptor.setMetrics(metrics);
+      traefikCreateContainerInterceptor.setEnabled(enabled);
+      if (parseBoolean(getenv("CHE_PLUGIN_TRAEFIK_STRATIO_NFS_ENABLED"))) {
+        traefikCreateContainerInterceptor.setNfsVolumePlanner(
+            new NFSVolumePlanner(
+                getenvOrDefault(
+                    "CHE_PLUGIN_TRAEFIK_STRATIO_NFS_VOLUME_DRIVER",
+                    NFSVolumePlanner.DEFAULT_VOLUME_DRIVER),
+                getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_NFS_SERVER", null),
+                getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_NFS_EXPORT", null),
+                getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_NFS_MOUNT_OPTIONS", null),
+                getenvOrDefault(
+                    "CHE_PLUGIN_TRAEFIK_STRATIO_NFS_CONTAINER_PATHS",
+                    NFSVolumePlanner.DEFAULT_CONTAINER_PATHS)));
+      }
+      traefikCreateContainerInterceptor.setInterceptionLogger(
+          new InterceptionLogger(
+              getenvAsDouble(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_LOG_SAMPLE_RATE",
+                  InterceptionLogger.DEFAULT_SAMPLE_RATE)));
+      // bound instances are injected, and can be looked up by load tests
+      bind(TraefikCreateContainerInterceptor.class).toInstance(traefikCreateContainerInterceptor);
       bindInterceptor(
           subclassesOf(DockerConnector.class),
           names("createContainer"),
           traefikCreateContainerInterceptor);
 
+      // routes are published as Docker labels unless a dynamic configuration provider is set,
+      // and removed with their container or by the periodic reconciliation
+      final RouteProvider routeProvider = routeProvider();
+      final RouteIndex routeIndex = new RouteIndex();
+      traefikCreateContainerInterceptor.setRouteProvider(routeProvider);
+      traefikCreateContainerInterceptor.setRouteIndex(routeIndex);
+      final String backendRules = getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_BACKEND_RULES", null);
+      if (backendRules != null) {
+        final BackendRules rules = new BackendRules(backendRules);
+        if (routeProvider == null && rules.hasBackendSettings()) {
+          // the Traefik 1.x Docker provider only reads them per container, not per port
+          addError(
+              "CHE_PLUGIN_TRAEFIK_STRATIO_BACKEND_RULES sets a health check, circuit breaker or "
+                  + "maximum connections, which need the file or kv routes provider");
+        }
+        traefikCreateContainerInterceptor.setBackendRules(rules);
+      }
+      traefikCreateContainerInterceptor.setRouteSharding(
+          new RouteSharding(
+              getenvOrDefault(
+                  "CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_SHARDS", RouteSharding.DEFAULT_SHARDS)));
+      final long reconcileInterval =
+          getenvAsLong(
+              "CHE_PLUGIN_TRAEFIK_STRATIO_RECONCILE_INTERVAL_SECONDS",
+              RouteReconciler.DEFAULT_INTERVAL_SECONDS);
+      if (reconcileInterval > 0) {
+        traefikCreateContainerInterceptor.setRouteReconciler(
+            new RouteReconciler(routeIndex, routeProvider, metrics, reconcileInterval));
+      }
+      final TraefikRemoveContainerInterceptor traefikRemoveContainerInterceptor =
+          new TraefikRemoveContainerInterceptor(routeIndex, routeProvider);
+      bind(RouteIndex.class).toInstance(routeIndex);
+      bind(TraefikRemoveContainerInterceptor.class).toInstance(traefikRemoveContainerInterceptor);
+      bindInterceptor(
+          subclassesOf(DockerConnector.class),
+          names("removeContainer"),
+          traefikRemoveContainerInterceptor);
+
+      // enablement, template and injection rules reloaded on changes of the configuration file
+      if (configurationFile != null) {
+        new ConfigurationWatcher(
+                Paths.get(configurationFile),
+                configuration -> {
+                  // compiled first, so that invalid rules leave the configuration unchanged
+                  final InjectionRules injectionRules = new InjectionRules(configuration);
+                  traefikCreateContainerInterceptor.setInjectionRules(injectionRules);
+                  traefikCreateContainerInterceptor.setEnabled(
+                      parseBoolean(
+                          configuration.getProperty("enabled", Boolean.toString(enabled))));
+                  traefikCreateContainerInterceptor.overrideTemplate(
+                      configuration.getProperty("template"));
+                  traefikCreateContainerInterceptor.refreshStrategy();
+                })
+            .start();
+      }
+
       System.out.println(
           "************\n\n\nTRAEFIK+NFS+ENTRYPOINT (V2.0) STRATIO PLUGIN LOADED\n\n\n************");
     }
   }
+
+  /**
+   * Creates the dynamic configuration provider of the routes
+   *
+   * @return the provider or null if the routes are published as Docker labels
+   */
+  @SuppressWarnings("unchecked")
+  private RouteProvider routeProvider() {
+    final String provider =
+        getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_PROVIDER", "labels");
+    switch (provider) {
+      case "labels":
+        return null;
+      case "file":
+        try {
+          return new FileRouteProvider(
+              Paths.get(
+                  getenvOrDefault(
+                      "CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_FILE_DIRECTORY",
+                      FileRouteProvider.DEFAULT_DIRECTORY)));
+        } catch (IOException e) {
+          addError(e);
+          return null;
+        }
+      case "kv":
+        final KeyValueRouteProvider keyValueRouteProvider =
+            new KeyValueRouteProvider(
+                getenvOrDefault(
+                    "CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_KV_PREFIX",
+                    KeyValueRouteProvider.DEFAULT_PREFIX));
+        // the store Traefik watches has to be set, routes written elsewhere would never be served
+        final String store = getenvOrDefault("CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_KV_STORE", null);
+        if (store == null) {
+          addError(
+              "The kv routes provider needs CHE_PLUGIN_TRAEFIK_STRATIO_ROUTES_KV_STORE, the class "
+                  + "of the key-value store watched by Traefik");
+          return null;
+        }
+        try {
+          bind(KeyValueStore.class)
+              .to((Class<? extends KeyValueStore>) Class.forName(store))
+              .in(Singleton.class);
+        } catch (ClassNotFoundException e) {
+          addError("Unknown key-value store %s", store);
+        }
+        requestInjection(keyValueRouteProvider);
+        return keyValueRouteProvider;
+      default:
+        addError("Unknown routes provider %s, expected labels, file or kv", provider);
+        return null;
+    }
+  }
+
+  /**
+   * Reads an environment variable
+   *
+   * @param name name of the environment variable
+   * @param defaultValue value used if the variable is not defined
+   * @return the value of the variable or the default one
+   */
+  private static String getenvOrDefault(String name, String defaultValue) {
+    final String value = getenv(name);
+    return isNullOrEmpty(value) ? defaultValue : value.trim();
+  }
+
+  /**
+   * Reads a numeric environment variable
+   *
+   * @param name name of the environment variable
+   * @param defaultValue value used if the variable is not defined
+   * @return the value of the variable or the default one
+   */
+  private static long getenvAsLong(String name, long defaultValue) {
+    final String value = getenv(name);
+    return isNullOrEmpty(value) ? defaultValue : parseLong(value.trim());
+  }
+
+  /**
+   * Reads a decimal environment variable
+   *
+   * @param name name of the environment variable
+   * @param defaultValue value used if the variable is not defined
+   * @return the value of the variable or the default one
+   */
+  private static double getenvAsDouble(String name, double defaultValue) {
+    final String value = getenv(name);
+    return isNullOrEmpty(value) ? defaultValue : parseDouble(value.trim());
+  }
 }
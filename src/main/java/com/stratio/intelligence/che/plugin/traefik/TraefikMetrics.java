@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timers and counters of the Traefik plugin, exposed through JMX under the {@link #DOMAIN} domain
+ * so that they can be scraped (e.g. by the Prometheus JMX exporter) and alerted on:
+ *
+ * <ul>
+ *   <li>{@code type=Interceptor}: invocations, errors and routes per container
+ *   <li>{@code type=Timer,name=<phase>}: latency histogram of each phase of the interception, and
+ *       of the route reconciliation
+ *   <li>{@code type=ImageCache}: image metadata cache statistics
+ * </ul>
+ */
+public class TraefikMetrics implements TraefikMetricsMBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TraefikMetrics.class);
+
+  /** JMX domain of the plugin. */
+  public static final String DOMAIN = "com.stratio.intelligence.che.plugin.traefik";
+
+  /** Timed phases of the plugin. */
+  public enum Phase {
+    /** Whole interception, proceed included */
+    TOTAL("total"),
+    /** Resolution of the server evaluation strategy */
+    STRATEGY("strategy"),
+    /** Preparation of the container while its image is inspected */
+    PREPARE("prepare"),
+    /** Wait for the image inspection, or its cache lookup */
+    INSPECT("inspectImage"),
+    /** Merge of container and image labels, ports and env */
+    MERGE("merge"),
+    /** Rendering of the Traefik labels */
+    RENDER("render"),
+    /** The intercepted createContainer call */
+    PROCEED("proceed"),
+    /** Reconciliation of the generated routes with the running containers */
+    RECONCILE("reconcile");
+
+    private final String metricName;
+
+    Phase(String metricName) {
+      this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+      return metricName;
+    }
+  }
+
+  private final Map<Phase, LatencyTimer> timers = new EnumMap<>(Phase.class);
+  private final LongAdder invocations = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder proceedErrors = new LongAdder();
+  private final LongAdder inspectFallbacks = new LongAdder();
+  private final LongAdder injectionFallbacks = new LongAdder();
+  private final LongAdder routes = new LongAdder();
+  private final LongAdder orphans = new LongAdder();
+  private final WindowedHistogram routesPerContainer =
+      new WindowedHistogram(WindowedHistogram.DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+
+  public TraefikMetrics() {
+    for (Phase phase : Phase.values()) {
+      timers.put(phase, new LatencyTimer());
+    }
+  }
+
+  /**
+   * Records the duration of a phase
+   *
+   * @param phase the phase
+   * @param startNanos start of the phase, from {@link System#nanoTime()}
+   * @return the current {@link System#nanoTime()}, start of the next phase
+   */
+  public long record(Phase phase, long startNanos) {
+    return timers.get(phase).record(startNanos);
+  }
+
+  /** @return the timer of a phase */
+  public LatencyTimer getTimer(Phase phase) {
+    return timers.get(phase);
+  }
+
+  /** Counts an intercepted call */
+  public void invocation() {
+    invocations.increment();
+  }
+
+  /** Counts a call failing in the plugin */
+  public void error() {
+    errors.increment();
+  }
+
+  /** Counts a call failing in the daemon */
+  public void proceedError() {
+    proceedErrors.increment();
+  }
+
+  /** Counts an image inspection that failed or timed out */
+  public void inspectFallback() {
+    inspectFallbacks.increment();
+  }
+
+  /** Counts a container whose injection rules were matched without the labels of its image */
+  public void injectionFallback() {
+    injectionFallbacks.increment();
+  }
+
+  /**
+   * Records the routes generated for a container
+   *
+   * @param count number of routes
+   */
+  public void routes(int count) {
+    routes.add(count);
+    routesPerContainer.record(count);
+  }
+
+  /**
+   * Records the containers purged by a reconciliation
+   *
+   * @param count number of orphan containers
+   */
+  public void orphans(int count) {
+    orphans.add(count);
+  }
+
+  @Override
+  public long getInvocationCount() {
+    return invocations.sum();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  @Override
+  public long getProceedErrorCount() {
+    return proceedErrors.sum();
+  }
+
+  @Override
+  public long getInspectFallbackCount() {
+    return inspectFallbacks.sum();
+  }
+
+  @Override
+  public long getInjectionFallbackCount() {
+    return injectionFallbacks.sum();
+  }
+
+  @Override
+  public long getRouteCount() {
+    return routes.sum();
+  }
+
+  @Override
+  public long getOrphanCount() {
+    return orphans.sum();
+  }
+
+  @Override
+  public long getRoutesPerContainerP50() {
+    return routesPerContainer.getPercentile(0.5);
+  }
+
+  @Override
+  public long getRoutesPerContainerP99() {
+    return routesPerContainer.getPercentile(0.99);
+  }
+
+  /**
+   * Registers the metrics, and the image cache statistics, in a MBean server. Previously registered
+   * MBeans with the same names are replaced.
+   *
+   * @param mBeanServer the MBean server, usually the platform one
+   * @param imageMetadataCache the image cache
+   */
+  public void register(MBeanServer mBeanServer, ImageMetadataCache imageMetadataCache) {
+    register(mBeanServer, "type=Interceptor", this);
+    register(mBeanServer, "type=ImageCache", imageMetadataCache);
+    timers.forEach(
+        (phase, timer) -> register(mBeanServer, "type=Timer,name=" + phase.getMetricName(), timer));
+  }
+
+  /**
+   * Registers a MBean of the plugin
+   *
+   * @param mBeanServer the MBean server
+   * @param keys the key properties of the name, e.g. "type=Timer,name=inspectImage"
+   * @param mBean the MBean
+   */
+  public static void register(MBeanServer mBeanServer, String keys, Object mBean) {
+    try {
+      final ObjectName name = new ObjectName(DOMAIN + ":" + keys);
+      if (mBeanServer.isRegistered(name)) {
+        mBeanServer.unregisterMBean(name);
+      }
+      mBeanServer.registerMBean(mBean, name);
+    } catch (JMException e) {
+      LOG.warn("Unable to register the {} MBean: {}", keys, e.getMessage());
+    }
+  }
+}
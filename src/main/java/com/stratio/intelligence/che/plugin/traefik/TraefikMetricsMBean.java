@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+/** JMX view of the {@link TraefikMetrics} counters. */
+public interface TraefikMetricsMBean {
+
+  /** @return number of intercepted createContainer calls */
+  long getInvocationCount();
+
+  /** @return number of calls that failed in the plugin before reaching the daemon */
+  long getErrorCount();
+
+  /** @return number of calls that failed in the daemon (proceed) */
+  long getProceedErrorCount();
+
+  /** @return number of image inspections that failed or timed out, routes used container data */
+  long getInspectFallbackCount();
+
+  /**
+   * @return number of containers whose injection rules with label conditions were matched without
+   *     the labels of their image, because its inspection failed
+   */
+  long getInjectionFallbackCount();
+
+  /** @return number of generated routes */
+  long getRouteCount();
+
+  /** @return number of orphan containers whose routes were purged by the reconciliation */
+  long getOrphanCount();
+
+  /** @return median number of routes per container, over the last one to two minutes */
+  long getRoutesPerContainerP50();
+
+  /**
+   * @return 99th percentile of the number of routes per container, over the last one to two minutes
+   */
+  long getRoutesPerContainerP99();
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.params.InspectContainerParams;
+import org.eclipse.che.plugin.docker.client.params.RemoveContainerParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the routes generated for a container when it is removed, from the {@link RouteIndex}
+ * and, if routes are not published as Docker labels, from the {@link RouteProvider}.
+ *
+ * <p>Only removeContainer is intercepted: Che stops the containers of a machine right before
+ * removing them, and handling the stop as well would look the container up twice.
+ */
+public class TraefikRemoveContainerInterceptor implements MethodInterceptor {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(TraefikRemoveContainerInterceptor.class);
+
+  private final RouteIndex routeIndex;
+
+  private final RouteProvider routeProvider;
+
+  /**
+   * @param routeIndex the routes generated by the plugin
+   * @param routeProvider the provider holding the routes, null if published as Docker labels
+   */
+  public TraefikRemoveContainerInterceptor(RouteIndex routeIndex, RouteProvider routeProvider) {
+    this.routeIndex = routeIndex;
+    this.routeProvider = routeProvider;
+  }
+
+  /**
+   * Removes the routes of the container once it is removed
+   *
+   * @param methodInvocation intercepting data of removeContainer method on {@link DockerConnector}
+   * @return the result of the intercepted method
+   * @throws Throwable if there is an exception
+   */
+  @Override
+  public Object invoke(MethodInvocation methodInvocation) throws Throwable {
+    final Object params = methodInvocation.getArguments()[0];
+    if (!(params instanceof RemoveContainerParams)) {
+      return methodInvocation.proceed();
+    }
+    final String container = ((RemoveContainerParams) params).getContainer();
+
+    // routes are published by container name, Che stops and removes containers by id
+    final RouteIndex.Entry entry = routeIndex.get(container);
+    String containerName = entry != null ? entry.getContainerName() : null;
+    if (containerName == null && routeProvider != null) {
+      // not indexed, e.g. created before a restart of the server
+      final DockerConnector dockerConnector = (DockerConnector) methodInvocation.getThis();
+      try {
+        containerName =
+            dockerConnector.inspectContainer(InspectContainerParams.create(container)).getName();
+      } catch (Exception e) {
+        LOG.warn("Unable to find the name of container {}: {}", container, e.getMessage());
+      }
+    }
+
+    final Object result = methodInvocation.proceed();
+
+    routeIndex.remove(container);
+    if (containerName != null && routeProvider != null) {
+      try {
+        routeProvider.remove(
+            containerName.startsWith("/") ? containerName.substring(1) : containerName);
+      } catch (Exception e) {
+        LOG.warn("Unable to remove the routes of container {}: {}", containerName, e.getMessage());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A route of a container port: a Traefik frontend (entry point and rule) and its backend (container
+ * port). It is published either as Docker labels of the container or through a {@link
+ * RouteProvider}.
+ */
+public final class TraefikRoute {
+
+  private final String service;
+  private final String port;
+  private final String entryPoint;
+  private final String rule;
+  private final BackendSettings backend;
+
+  /**
+   * @param service name of the service, e.g. "service-wsagent"
+   * @param port port of the container
+   * @param entryPoint Traefik entry point of the frontend
+   * @param rule Traefik frontend rule, e.g. "PathPrefixStrip:/wsagent-abcd-work123"
+   */
+  public TraefikRoute(String service, String port, String entryPoint, String rule) {
+    this(service, port, entryPoint, rule, null);
+  }
+
+  /**
+   * @param service name of the service, e.g. "service-wsagent"
+   * @param port port of the container
+   * @param entryPoint Traefik entry point of the frontend
+   * @param rule Traefik frontend rule, e.g. "PathPrefixStrip:/wsagent-abcd-work123"
+   * @param backend health check, circuit breaker, connections and weight, null if none
+   */
+  public TraefikRoute(
+      String service, String port, String entryPoint, String rule, BackendSettings backend) {
+    this.service = service;
+    this.port = port;
+    this.entryPoint = entryPoint;
+    this.rule = rule;
+    this.backend = backend;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getPort() {
+    return port;
+  }
+
+  public String getEntryPoint() {
+    return entryPoint;
+  }
+
+  public String getRule() {
+    return rule;
+  }
+
+  /** @return the backend settings, null if none */
+  public BackendSettings getBackend() {
+    return backend;
+  }
+
+  /**
+   * Adds the Traefik labels of the route, discovered by the Traefik Docker provider. Only the
+   * weight of the backend settings is a service label, the others need a {@link RouteProvider}.
+   *
+   * @param labels the labels of the container
+   */
+  public void addLabels(Map<String, String> labels) {
+    final String prefix = "traefik." + service;
+    labels.put(prefix + ".port", port);
+    labels.put(prefix + ".frontend.entryPoints", entryPoint);
+    labels.put(prefix + ".frontend.rule", rule);
+    if (backend != null && backend.getWeight() != null) {
+      labels.put(prefix + ".weight", backend.getWeight().toString());
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TraefikRoute)) {
+      return false;
+    }
+    final TraefikRoute route = (TraefikRoute) o;
+    return service.equals(route.service)
+        && port.equals(route.port)
+        && entryPoint.equals(route.entryPoint)
+        && rule.equals(route.rule)
+        && Objects.equals(backend, route.backend);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = service.hashCode();
+    result = 31 * result + port.hashCode();
+    result = 31 * result + entryPoint.hashCode();
+    result = 31 * result + rule.hashCode();
+    result = 31 * result + Objects.hashCode(backend);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "TraefikRoute{service='"
+        + service
+        + "', port='"
+        + port
+        + "', entryPoint='"
+        + entryPoint
+        + "', rule='"
+        + rule
+        + "', backend="
+        + backend
+        + '}';
+  }
+}
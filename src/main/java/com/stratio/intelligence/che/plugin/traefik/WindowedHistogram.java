@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link Histogram} of the values recorded during the current and the previous windows, so that its
+ * percentiles follow the recent behaviour instead of everything since startup. Windows are rotated
+ * lock-free when recording or reading.
+ */
+public class WindowedHistogram {
+
+  /** Default window, percentiles cover the last one to two minutes. */
+  public static final long DEFAULT_WINDOW_SECONDS = 60;
+
+  private final long windowNanos;
+  private final LongSupplier nanoTime;
+  private final AtomicReference<Window> window;
+
+  /**
+   * @param window duration of a window
+   * @param unit unit of {@code window}
+   */
+  public WindowedHistogram(long window, TimeUnit unit) {
+    this(window, unit, System::nanoTime);
+  }
+
+  WindowedHistogram(long window, TimeUnit unit, LongSupplier nanoTime) {
+    this.windowNanos = unit.toNanos(window);
+    this.nanoTime = nanoTime;
+    this.window = new AtomicReference<>(new Window(nanoTime.getAsLong(), new Histogram(), null));
+  }
+
+  /**
+   * Records a value in the current window
+   *
+   * @param value the value, negative values are recorded as 0
+   */
+  public void record(long value) {
+    current().current.record(value);
+  }
+
+  /** @return number of values recorded during the current and the previous windows */
+  public long getCount() {
+    final Window current = current();
+    final long previous = current.previous == null ? 0 : current.previous.getCount();
+    return current.current.getCount() + previous;
+  }
+
+  /**
+   * Gets a percentile of the values recorded during the current and the previous windows
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the upper bound of the bucket holding the percentile, 0 if there is no value
+   */
+  public long getPercentile(double quantile) {
+    final Window current = current();
+    return current.previous == null
+        ? current.current.getPercentile(quantile)
+        : Histogram.getPercentile(quantile, current.previous, current.current);
+  }
+
+  private Window current() {
+    final long now = nanoTime.getAsLong();
+    Window current = window.get();
+    while (now - current.start >= windowNanos) {
+      // the values of a late write to the rotated window are kept in the previous one
+      final Window next =
+          new Window(
+              now,
+              new Histogram(),
+              now - current.start < 2 * windowNanos ? current.current : null);
+      if (window.compareAndSet(current, next)) {
+        return next;
+      }
+      current = window.get();
+    }
+    return current;
+  }
+
+  /** Histograms of the current and previous windows. */
+  private static final class Window {
+
+    private final long start;
+    private final Histogram current;
+    private final Histogram previous;
+
+    private Window(long start, Histogram current, Histogram previous) {
+      this.start = start;
+      this.current = current;
+      this.previous = previous;
+    }
+  }
+}
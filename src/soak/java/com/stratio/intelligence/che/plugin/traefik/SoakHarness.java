@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
+import org.eclipse.che.plugin.docker.client.json.ContainerCreated;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+import org.eclipse.che.plugin.docker.client.params.CreateContainerParams;
+import org.eclipse.che.plugin.docker.client.params.RemoveContainerParams;
+import org.eclipse.che.plugin.docker.client.params.StopContainerParams;
+
+/**
+ * Load and soak harness: calls the Docker connector intercepted by {@link TraefikDockerModule}
+ * under Guice, connected over HTTP to a {@link StubDockerDaemon} on a localhost port, and fires
+ * concurrent workspace starts, in rounds. Each round creates, stops then removes every container
+ * and reports throughput, latency percentiles, heap, threads and the size of the plugin state. Over
+ * a soak run, it fails if the plugin state, the heap or the threads keep growing.
+ *
+ * <pre>
+ * mvn -P soak test-compile exec:exec -Dsoak.containers=10000 -Dsoak.concurrency=200 \
+ *     -Dsoak.inspectLatencyMs=50 -Dsoak.failureRate=0.01 -Dsoak.durationMinutes=60
+ * </pre>
+ */
+public class SoakHarness {
+
+  private static final String TEMPLATE =
+      "predatio.traefik/<serverName>-<machineName>-<workspaceId>";
+
+  /** Rounds ignored by the growth detection, while caches and pools fill. */
+  private static final int WARMUP_ROUNDS = 2;
+
+  /** Heap growth between the first and last measured rounds considered unbounded. */
+  private static final double HEAP_GROWTH_RATIO = 1.5;
+
+  /** Thread growth between the first and last measured rounds considered unbounded. */
+  private static final int THREAD_GROWTH = 10;
+
+  private final int containers;
+  private final int concurrency;
+  private final int containersPerWorkspace;
+  private final int images;
+  private final DockerConnector dockerConnector;
+  private final RouteIndex routeIndex;
+  private final ImageMetadataCache imageMetadataCache;
+  private final TraefikMetrics metrics;
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final List<Sample> samples = new ArrayList<>();
+
+  public SoakHarness(
+      int containers,
+      int concurrency,
+      int containersPerWorkspace,
+      int images,
+      StubDockerDaemon daemon) {
+    this.containers = containers;
+    this.concurrency = concurrency;
+    this.containersPerWorkspace = containersPerWorkspace;
+    this.images = images;
+    final Injector injector =
+        Guice.createInjector(new TraefikDockerModule(), new StubDockerModule(daemon, TEMPLATE));
+    this.dockerConnector = injector.getInstance(DockerConnector.class);
+    this.routeIndex = injector.getInstance(RouteIndex.class);
+    this.imageMetadataCache = injector.getInstance(ImageMetadataCache.class);
+    this.metrics = injector.getInstance(TraefikMetrics.class);
+    if (threads.isThreadContentionMonitoringSupported()) {
+      threads.setThreadContentionMonitoringEnabled(true);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    final int concurrency = Integer.getInteger("soak.concurrency", 200);
+    // a fixed pool, so that the daemon threads do not blur the thread growth of the plugin
+    final StubDockerDaemon daemon =
+        new StubDockerDaemon(
+            Long.getLong("soak.inspectLatencyMs", 50),
+            Long.getLong("soak.createLatencyMs", 20),
+            Double.parseDouble(System.getProperty("soak.failureRate", "0.01")),
+            concurrency + AsyncImageInspector.DEFAULT_THREADS + 1);
+    final SoakHarness harness =
+        new SoakHarness(
+            Integer.getInteger("soak.containers", 10000),
+            concurrency,
+            Integer.getInteger("soak.containersPerWorkspace", 3),
+            Integer.getInteger("soak.images", 20),
+            daemon);
+
+    final long deadline =
+        System.nanoTime() + TimeUnit.MINUTES.toNanos(Long.getLong("soak.durationMinutes", 0));
+    int round = 0;
+    do {
+      harness.round(round++);
+    } while (System.nanoTime() < deadline);
+
+    final List<String> problems = harness.detectGrowth();
+    problems.forEach(problem -> System.out.println("GROWTH: " + problem));
+    daemon.stop();
+    System.out.println(problems.isEmpty() ? "PASSED" : "FAILED");
+    System.exit(problems.isEmpty() ? 0 : 1);
+  }
+
+  /**
+   * Creates, stops then removes every container of a round, {@code concurrency} calls at a time.
+   */
+  void round(int round) throws InterruptedException {
+    final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    final Histogram createLatencies = new Histogram();
+    final Histogram removeLatencies = new Histogram();
+    final LongAdder errors = new LongAdder();
+    final Queue<String> created = new ConcurrentLinkedQueue<>();
+    final long blockedBefore = blockedMillis();
+
+    final long start = System.nanoTime();
+    final CountDownLatch creations = new CountDownLatch(containers);
+    for (int i = 0; i < containers; i++) {
+      final int container = i;
+      executor.execute(
+          () -> {
+            final long callStart = System.nanoTime();
+            try {
+              final ContainerCreated containerCreated =
+                  dockerConnector.createContainer(createContainerParams(round, container));
+              created.add(containerCreated.getId());
+              createLatencies.record(System.nanoTime() - callStart);
+            } catch (Exception e) {
+              errors.increment();
+            } finally {
+              creations.countDown();
+            }
+          });
+    }
+    creations.await();
+    final long createNanos = System.nanoTime() - start;
+
+    final CountDownLatch removals = new CountDownLatch(created.size());
+    for (String id : created) {
+      executor.execute(
+          () -> {
+            try {
+              dockerConnector.stopContainer(StopContainerParams.create(id));
+              final long callStart = System.nanoTime();
+              dockerConnector.removeContainer(RemoveContainerParams.create(id));
+              removeLatencies.record(System.nanoTime() - callStart);
+            } catch (Exception e) {
+              errors.increment();
+            } finally {
+              removals.countDown();
+            }
+          });
+    }
+    removals.await();
+    // measured before the workers terminate, their blocked time goes with them
+    final long blockedMillis = blockedMillis() - blockedBefore;
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    System.gc();
+    final Sample sample =
+        new Sample(
+            memory.getHeapMemoryUsage().getUsed(),
+            threads.getThreadCount(),
+            routeIndex.size(),
+            imageMetadataCache.getSize());
+    samples.add(sample);
+    System.out.printf(
+        "round %d: %d containers in %d ms (%.0f/s), %d errors%n"
+            + "  create latency ms p50=%.1f p99=%.1f max=%.1f, remove p99=%.1f%n"
+            + "  threads blocked %d ms (%.1f%% of worker time), inspect fallbacks %d%n"
+            + "  heap %d MB, %d threads, %d indexed containers, %d cached images%n",
+        round,
+        containers,
+        TimeUnit.NANOSECONDS.toMillis(createNanos),
+        containers * 1e9 / createNanos,
+        errors.sum(),
+        createLatencies.getPercentile(0.5) / 1e6,
+        createLatencies.getPercentile(0.99) / 1e6,
+        createLatencies.getMax() / 1e6,
+        removeLatencies.getPercentile(0.99) / 1e6,
+        blockedMillis,
+        100.0
+            * blockedMillis
+            / Math.max(1, TimeUnit.NANOSECONDS.toMillis(createNanos) * concurrency),
+        metrics.getInspectFallbackCount(),
+        sample.heapBytes / (1024 * 1024),
+        sample.threads,
+        sample.indexedContainers,
+        sample.cachedImages);
+  }
+
+  /** @return the growth problems seen over the measured rounds */
+  List<String> detectGrowth() {
+    final List<String> problems = new ArrayList<>();
+    final Sample last = samples.get(samples.size() - 1);
+    // every container was removed
+    if (last.indexedContainers > 0) {
+      problems.add(last.indexedContainers + " removed containers are still indexed");
+    }
+    if (last.cachedImages > images) {
+      problems.add(last.cachedImages + " cached images for " + images + " stack images");
+    }
+    if (samples.size() > WARMUP_ROUNDS + 1) {
+      final Sample first = samples.get(WARMUP_ROUNDS);
+      if (last.heapBytes > first.heapBytes * HEAP_GROWTH_RATIO) {
+        problems.add(
+            "heap grew from " + first.heapBytes + " to " + last.heapBytes + " bytes after GC");
+      }
+      if (last.threads > first.threads + THREAD_GROWTH) {
+        problems.add("threads grew from " + first.threads + " to " + last.threads);
+      }
+    }
+    return problems;
+  }
+
+  private CreateContainerParams createContainerParams(int round, int container) {
+    final int workspace = container / containersPerWorkspace;
+    final Map<String, String> labels = new HashMap<>();
+    labels.put("che:server:4401/tcp:ref", "wsagent");
+    labels.put("che:server:4401/tcp:protocol", "http");
+    labels.put("che:server:4411/tcp:ref", "terminal");
+    labels.put("che:server:4411/tcp:protocol", "http");
+    final Map<String, Map<String, String>> exposedPorts = new HashMap<>();
+    exposedPorts.put("4401/tcp", new HashMap<>());
+    exposedPorts.put("4411/tcp", new HashMap<>());
+    final HostConfig hostConfig = new HostConfig();
+    hostConfig.setMemory(2L * 1024 * 1024 * 1024);
+
+    final ContainerConfig containerConfig = new ContainerConfig();
+    containerConfig.setImage("stack/image-" + workspace % images + ":latest");
+    containerConfig.setLabels(labels);
+    containerConfig.setExposedPorts(exposedPorts);
+    containerConfig.setHostConfig(hostConfig);
+    containerConfig.setEnv(
+        new String[] {
+          "CHE_WORKSPACE_ID=workspace" + round + "x" + workspace,
+          "CHE_MACHINE_NAME=machine" + container % containersPerWorkspace,
+          "CHE_IS_DEV_MACHINE=" + (container % containersPerWorkspace == 0)
+        });
+    return CreateContainerParams.create(containerConfig)
+        .withContainerName("workspace" + round + "x" + workspace + "_machine" + container);
+  }
+
+  /** @return total time the live threads spent blocked on monitors */
+  private long blockedMillis() {
+    if (!threads.isThreadContentionMonitoringEnabled()) {
+      return 0;
+    }
+    long blocked = 0;
+    for (ThreadInfo threadInfo : threads.getThreadInfo(threads.getAllThreadIds())) {
+      if (threadInfo != null && threadInfo.getBlockedTime() > 0) {
+        blocked += threadInfo.getBlockedTime();
+      }
+    }
+    return blocked;
+  }
+
+  /** State of the JVM and of the plugin after a round. */
+  private static final class Sample {
+
+    private final long heapBytes;
+    private final int threads;
+    private final int indexedContainers;
+    private final long cachedImages;
+
+    private Sample(long heapBytes, int threads, int indexedContainers, long cachedImages) {
+      this.heapBytes = heapBytes;
+      this.threads = threads;
+      this.indexedContainers = indexedContainers;
+      this.cachedImages = cachedImages;
+    }
+  }
+}
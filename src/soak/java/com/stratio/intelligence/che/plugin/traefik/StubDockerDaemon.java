@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Docker Engine API stub served over HTTP on a localhost port, answering the calls the plugin and
+ * the harness make with a configurable latency and failure rate. An unmodified {@code
+ * DockerConnector} pointed at {@link #getUri()} goes through its real HTTP and connection path.
+ */
+public class StubDockerDaemon {
+
+  /** Optional API version prefix of the paths, e.g. "/v1.24". */
+  private static final Pattern VERSION_PREFIX = Pattern.compile("^/v[0-9.]+(/.*)$");
+
+  private static final Pattern CONTAINER = Pattern.compile("^/containers/([^/]+)(/[a-z]+)?$");
+
+  private static final Pattern IMAGE = Pattern.compile("^/images/(.+)/json$");
+
+  private final long inspectLatencyMillis;
+  private final long createLatencyMillis;
+  private final double failureRate;
+
+  /** image reference -> inspection, as JSON */
+  private final ConcurrentMap<String, String> images = new ConcurrentHashMap<>();
+
+  /** container id -> container name */
+  private final ConcurrentMap<String, String> containers = new ConcurrentHashMap<>();
+
+  private final LongAdder inspections = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private final ExecutorService executor;
+  private final HttpServer server;
+
+  /**
+   * Starts the daemon on a free localhost port
+   *
+   * @param inspectLatencyMillis latency of an image inspection
+   * @param createLatencyMillis latency of a container creation
+   * @param failureRate ratio of failed image inspections, between 0 and 1
+   * @param threads threads serving the requests, one of them held by each events stream
+   * @throws IOException if the port cannot be bound
+   */
+  public StubDockerDaemon(
+      long inspectLatencyMillis, long createLatencyMillis, double failureRate, int threads)
+      throws IOException {
+    this.inspectLatencyMillis = inspectLatencyMillis;
+    this.createLatencyMillis = createLatencyMillis;
+    this.failureRate = failureRate;
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("stub-docker-%d").setDaemon(true).build());
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /** @return the URI of the daemon, for the Docker connector configuration */
+  public URI getUri() {
+    return URI.create("http://localhost:" + server.getAddress().getPort());
+  }
+
+  /** Stops the daemon and closes the events streams. */
+  public void stop() {
+    stopped.countDown();
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /** @return number of image inspections that reached the daemon */
+  public long getInspectionCount() {
+    return inspections.sum();
+  }
+
+  /** @return number of failed image inspections */
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /** @return number of existing containers */
+  public int getContainerCount() {
+    return containers.size();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream body = exchange.getRequestBody()) {
+      // the connection is reused by the client only once the request is read
+      ByteStreams.copy(body, ByteStreams.nullOutputStream());
+    }
+    try {
+      String path = exchange.getRequestURI().getPath();
+      final Matcher version = VERSION_PREFIX.matcher(path);
+      if (version.matches()) {
+        path = version.group(1);
+      }
+      route(exchange, exchange.getRequestMethod(), path);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      respond(exchange, 500, error("Interrupted"));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void route(HttpExchange exchange, String method, String path)
+      throws IOException, InterruptedException {
+    if (method.equals("GET") && path.equals("/events")) {
+      // the events stream stays open, as on a healthy daemon
+      exchange.sendResponseHeaders(200, 0);
+      exchange.getResponseBody().flush();
+      stopped.await();
+      return;
+    }
+    if (method.equals("POST") && path.equals("/containers/create")) {
+      sleep(createLatencyMillis);
+      final String id = UUID.randomUUID().toString().replace("-", "");
+      containers.put(id, queryParameter(exchange, "name", id));
+      respond(exchange, 201, "{\"Id\":\"" + id + "\",\"Warnings\":[]}");
+      return;
+    }
+    if (method.equals("GET") && path.equals("/containers/json")) {
+      final StringJoiner list = new StringJoiner(",", "[", "]");
+      containers.forEach(
+          (id, name) -> list.add("{\"Id\":\"" + id + "\",\"Names\":[" + quote("/" + name) + "]}"));
+      respond(exchange, 200, list.toString());
+      return;
+    }
+    if (method.equals("GET") && path.equals("/images/json")) {
+      respond(exchange, 200, "[]");
+      return;
+    }
+    final Matcher image = IMAGE.matcher(path);
+    if (method.equals("GET") && image.matches()) {
+      inspectImage(exchange, image.group(1));
+      return;
+    }
+    final Matcher container = CONTAINER.matcher(path);
+    if (container.matches()) {
+      final String id = container.group(1);
+      final String action = container.group(2);
+      final String name = containers.get(id);
+      if (name == null) {
+        respond(exchange, 404, error("No such container: " + id));
+      } else if (method.equals("GET") && "/json".equals(action)) {
+        respond(exchange, 200, "{\"Id\":\"" + id + "\",\"Name\":" + quote("/" + name) + "}");
+      } else if (method.equals("POST") && "/stop".equals(action)) {
+        respond(exchange, 204, null);
+      } else if (method.equals("DELETE") && action == null) {
+        containers.remove(id);
+        respond(exchange, 204, null);
+      } else {
+        respond(exchange, 404, error("Unsupported call " + method + ' ' + path));
+      }
+      return;
+    }
+    respond(exchange, 404, error("Unsupported call " + method + ' ' + path));
+  }
+
+  private void inspectImage(HttpExchange exchange, String image)
+      throws IOException, InterruptedException {
+    inspections.increment();
+    sleep(inspectLatencyMillis);
+    if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+      failures.increment();
+      respond(exchange, 500, error("Stub daemon failure inspecting " + image));
+      return;
+    }
+    respond(exchange, 200, images.computeIfAbsent(image, StubDockerDaemon::imageInfo));
+  }
+
+  /** @return an image exposing a few Che servers, like a stack image, as JSON */
+  private static String imageInfo(String image) {
+    final StringJoiner labels = new StringJoiner(",", "{", "}");
+    final StringJoiner exposedPorts = new StringJoiner(",", "{", "}");
+    for (int i = 0; i < 4; i++) {
+      final String portValue = (8000 + i) + "/tcp";
+      labels.add(quote("che:server:" + portValue + ":ref") + ':' + quote("server" + i));
+      labels.add(quote("che:server:" + portValue + ":protocol") + ":\"http\"");
+      exposedPorts.add(quote(portValue) + ":{}");
+    }
+    return "{\"Id\":"
+        + quote("sha256:" + Integer.toHexString(image.hashCode()))
+        + ",\"Config\":{\"Labels\":"
+        + labels
+        + ",\"ExposedPorts\":"
+        + exposedPorts
+        + ",\"Env\":[\"PATH=/usr/bin\",\"JAVA_HOME=/opt/jdk\"]}}";
+  }
+
+  private static String queryParameter(HttpExchange exchange, String name, String defaultValue)
+      throws IOException {
+    final String query = exchange.getRequestURI().getRawQuery();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        if (parameter.startsWith(name + '=')) {
+          return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+        }
+      }
+    }
+    return defaultValue;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+    if (json == null) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static String error(String message) {
+    return "{\"message\":" + quote(message) + '}';
+  }
+
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private static void sleep(long millis) throws InterruptedException {
+    if (millis > 0) {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    }
+  }
+}
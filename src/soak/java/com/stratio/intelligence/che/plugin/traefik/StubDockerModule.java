@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+import org.eclipse.che.plugin.docker.client.DockerApiVersionPathPrefixProvider;
+import org.eclipse.che.plugin.docker.client.DockerConnectionFactory;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.DockerConnectorConfiguration;
+import org.eclipse.che.plugin.docker.client.DockerRegistryAuthResolver;
+import org.eclipse.che.plugin.docker.client.InitialAuthConfig;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.ServerEvaluationStrategyProvider;
+
+/**
+ * Binds what {@link TraefikDockerModule} expects from the Che server: the Docker connector, here
+ * the Che one created by Guice, so that it is intercepted, and connected over HTTP to a {@link
+ * StubDockerDaemon}, and the custom server evaluation strategy.
+ */
+public class StubDockerModule extends AbstractModule {
+
+  private final StubDockerDaemon daemon;
+  private final String template;
+
+  /**
+   * @param daemon the stub daemon
+   * @param template the custom server evaluation strategy template
+   */
+  public StubDockerModule(StubDockerDaemon daemon, String template) {
+    this.daemon = daemon;
+    this.template = template;
+  }
+
+  @Override
+  protected void configure() {
+    bind(DockerConnector.class).in(Singleton.class);
+
+    final ServerEvaluationStrategyProvider serverEvaluationStrategyProvider =
+        stub(ServerEvaluationStrategyProvider.class);
+    when(serverEvaluationStrategyProvider.get())
+        .thenReturn(
+            new CustomServerEvaluationStrategy(
+                "10.0.0.1", "127.0.0.1", template, "http", "8080", null));
+    bind(ServerEvaluationStrategyProvider.class).toInstance(serverEvaluationStrategyProvider);
+    bindConstant()
+        .annotatedWith(Names.named("che.docker.server_evaluation_strategy.custom.template"))
+        .to(template);
+  }
+
+  /** @return the configuration pointing the connector at the stub daemon, without TLS */
+  @Provides
+  @Singleton
+  DockerConnectorConfiguration connectorConfiguration() {
+    return new DockerConnectorConfiguration(daemon.getUri(), null, stub(InitialAuthConfig.class));
+  }
+
+  @Provides
+  @Singleton
+  DockerConnectionFactory connectionFactory(DockerConnectorConfiguration connectorConfiguration) {
+    return new DockerConnectionFactory(connectorConfiguration);
+  }
+
+  /** @return no registry authentication, the harness does not pull images */
+  @Provides
+  @Singleton
+  DockerRegistryAuthResolver authResolver() {
+    return stub(DockerRegistryAuthResolver.class);
+  }
+
+  /** @return paths without API version, the stub daemon answers any version */
+  @Provides
+  @Singleton
+  DockerApiVersionPathPrefixProvider apiVersionPathPrefixProvider() {
+    final DockerApiVersionPathPrefixProvider provider =
+        stub(DockerApiVersionPathPrefixProvider.class);
+    when(provider.get()).thenReturn("");
+    return provider;
+  }
+
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.Assert;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+@Listeners(MockitoTestNGListener.class)
+public class AsyncImageInspectorTest {
+
+  @Mock private DockerConnector dockerConnector;
+
+  @Mock private ImageInfo imageInfo;
+
+  @Test
+  public void testRejectedWhenPoolFull() throws Exception {
+    final CountDownLatch daemon = new CountDownLatch(1);
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenAnswer(
+            invocation -> {
+              daemon.await();
+              return imageInfo;
+            });
+    final AsyncImageInspector imageInspector =
+        new AsyncImageInspector(new ImageMetadataCache(100, 1, TimeUnit.MINUTES), 1, 100, 100);
+
+    try {
+      // one running and 16 queued inspections fill the pool of one thread
+      for (int i = 0; i <= 16; i++) {
+        imageInspector.inspect(dockerConnector, "image" + i);
+      }
+      final CompletableFuture<ImageMetadata> rejected =
+          imageInspector.inspect(dockerConnector, "slow/image:latest");
+
+      // failed at once instead of being inspected by the caller
+      Assert.assertTrue(rejected.isCompletedExceptionally());
+      Assert.assertSame(
+          imageInspector.await(rejected, "slow/image:latest"), ImageMetadata.EMPTY);
+    } finally {
+      daemon.countDown();
+    }
+  }
+
+  @Test
+  public void testPrefetchImagesOfWorkspace() throws Exception {
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(50);
+              return imageInfo;
+            });
+    final ImageMetadataCache imageMetadataCache = new ImageMetadataCache(10, 1, TimeUnit.MINUTES);
+    final AsyncImageInspector imageInspector =
+        new AsyncImageInspector(imageMetadataCache, 2, 1000, 1000);
+    imageInspector.inspect(dockerConnector, "work123", "eclipse/ubuntu_jdk8").get();
+    imageInspector.inspect(dockerConnector, "work123", "mysql").get();
+
+    // the next start of the workspace is cold
+    imageMetadataCache.invalidateAll();
+    imageInspector.inspect(dockerConnector, "work123", "eclipse/ubuntu_jdk8").get();
+
+    // the database image is inspected as soon as the dev machine is created
+    verify(dockerConnector, timeout(1000).times(2))
+        .inspectImage(argThat(params -> params.getImage().equals("mysql")));
+    verify(dockerConnector, times(2))
+        .inspectImage(argThat(params -> params.getImage().equals("eclipse/ubuntu_jdk8")));
+  }
+
+  @Test
+  public void testRecentImages() {
+    List<String> images = Collections.singletonList("a");
+    Assert.assertSame(AsyncImageInspector.recent(images, "a"), images);
+
+    images = AsyncImageInspector.recent(Arrays.asList("a", "b", "c"), "a");
+    Assert.assertEquals(images, Arrays.asList("b", "c", "a"));
+
+    for (int i = 0; i < 20; i++) {
+      images = AsyncImageInspector.recent(images, "image" + i);
+    }
+    Assert.assertEquals(images.size(), AsyncImageInspector.MAXIMUM_IMAGES_PER_WORKSPACE);
+    Assert.assertEquals(images.get(images.size() - 1), "image19");
+    Assert.assertEquals(images.get(0), "image12");
+  }
+}
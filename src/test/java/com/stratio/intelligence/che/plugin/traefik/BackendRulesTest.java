@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BackendRulesTest {
+
+  private static final BackendRules RULES =
+      new BackendRules(
+          "wsagent.healthcheck.path=/api/; wsagent.healthcheck.interval=10s;"
+              + "wsagent.maxconn.perGb=50; wsagent.weight=cpuShares;"
+              + "*.circuitbreaker.expression=NetworkErrorRatio() > 0.5; *.maxconn.amount=20");
+
+  @Test
+  public void testServerRulesOverrideDefaults() {
+    final HostConfig hostConfig = new HostConfig();
+    hostConfig.setMemory(2L * 1024 * 1024 * 1024);
+    hostConfig.setCpuShares(512);
+
+    Assert.assertEquals(
+        RULES.settings("wsagent", hostConfig),
+        new BackendSettings("/api/", "10s", "NetworkErrorRatio() > 0.5", 100, 5));
+    Assert.assertEquals(
+        RULES.settings("terminal", hostConfig),
+        new BackendSettings(null, null, "NetworkErrorRatio() > 0.5", 20, null));
+  }
+
+  @Test
+  public void testWithoutResources() {
+    // no memory limit: no scaled maximum connections, default CPU shares
+    Assert.assertEquals(
+        RULES.settings("wsagent", new HostConfig()),
+        new BackendSettings("/api/", "10s", "NetworkErrorRatio() > 0.5", null, 10));
+    Assert.assertNull(new BackendRules("wsagent.weight=3").settings("terminal", null));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownSetting() {
+    new BackendRules("wsagent.retries=3");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidValue() {
+    new BackendRules("wsagent.maxconn.amount=many");
+  }
+
+  @Test
+  public void testBackendSettings() {
+    Assert.assertTrue(RULES.hasBackendSettings());
+    Assert.assertFalse(new BackendRules("*.weight=cpuShares").hasBackendSettings());
+  }
+
+  @Test
+  public void testLabelsAndProviders() throws Exception {
+    final TraefikRoute route =
+        new TraefikRoute(
+            "service-wsagent",
+            "4401",
+            "http",
+            "PathPrefixStrip:/wsagent",
+            new BackendSettings("/api/", "10s", null, 100, 5));
+
+    final Map<String, String> labels = new HashMap<>();
+    route.addLabels(labels);
+    Assert.assertEquals(labels.get("traefik.service-wsagent.weight"), "5");
+    // only the weight is a label of the port
+    Assert.assertFalse(labels.containsKey("traefik.backend.healthcheck.path"));
+
+    final String toml = FileRouteProvider.toToml("machine", Collections.singletonList(route));
+    Assert.assertTrue(toml.contains("weight = 5"), toml);
+    Assert.assertTrue(toml.contains(".healthcheck]\n    path = \"/api/\""), toml);
+    Assert.assertTrue(toml.contains(".maxconn]\n    amount = 100"), toml);
+
+    final InMemoryKeyValueStore keyValueStore = new InMemoryKeyValueStore();
+    final KeyValueRouteProvider routeProvider =
+        new KeyValueRouteProvider(KeyValueRouteProvider.DEFAULT_PREFIX);
+    routeProvider.setKeyValueStore(keyValueStore);
+    routeProvider.publish("machine", Collections.singletonList(route));
+    Assert.assertEquals(
+        keyValueStore.getEntries().get("traefik/backends/machine@service-wsagent/healthcheck/path"),
+        "/api/");
+  }
+}
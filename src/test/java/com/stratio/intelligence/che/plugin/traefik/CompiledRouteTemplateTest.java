@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy.RenderingEvaluation;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class CompiledRouteTemplateTest {
+
+  private static final String[] PORTS = {"4401/tcp", "4411/tcp", "8080/tcp", "9000/udp"};
+
+  private RenderingEvaluation renderingEvaluation;
+
+  @BeforeMethod
+  protected void setup() {
+    renderingEvaluation = renderingEvaluation("wsagent", "abcd");
+  }
+
+  private static RenderingEvaluation renderingEvaluation(String wsagentRef, String machineName) {
+    final Map<String, String> labels =
+        ImmutableMap.of(
+            "che:server:4401/tcp:ref", wsagentRef, "che:server:4411/tcp:ref", "terminal");
+    final Set<String> exposedPorts = ImmutableSet.copyOf(PORTS);
+    final String[] env = {"CHE_WORKSPACE_ID=work123", "CHE_MACHINE_NAME=" + machineName};
+    return new CustomServerEvaluationStrategy(
+            "10.0.0.1", "127.0.0.1", "predatio.traefik/<serverName>", "http", "8080", null)
+        .getOfflineRenderingEvaluation(labels, exposedPorts, env);
+  }
+
+  @DataProvider(name = "templates")
+  public Object[][] templates() {
+    return new Object[][] {
+      {"predatio.traefik/<serverName>-<machineName>-<workspaceId>"},
+      {"host:8080/<workspaceId>/<serverName>"},
+      {"<externalAddress>/ws-<workspaceId>_<serverName>.<machineName>"},
+      {"<machineName>/<serverName>"},
+      {"<serverName>/<machineName>"},
+      {"predatio.traefik/static"},
+      {"predatio.traefik/"},
+      {"/<serverName>"},
+      {"predatio.traefik"}
+    };
+  }
+
+  /**
+   * The compiled template renders the same endpoint id as the whole template, with the container
+   * values rendered once as in the interceptor
+   */
+  @Test(dataProvider = "templates")
+  public void testSameAsRendering(String template) {
+    assertSameAsRendering(template, renderingEvaluation);
+  }
+
+  /** Values containing '/' move the endpoint id as when the whole template is rendered */
+  @Test(dataProvider = "templates")
+  public void testSameAsRenderingWithSlashes(String template) {
+    assertSameAsRendering(template, renderingEvaluation("api/wsagent", "db/primary"));
+  }
+
+  private static void assertSameAsRendering(
+      String template, RenderingEvaluation renderingEvaluation) {
+    final CompiledRouteTemplate compiledTemplate = CompiledRouteTemplate.compile(template);
+    Assert.assertNotNull(compiledTemplate);
+
+    final String[] containerValues =
+        compiledTemplate.renderContainerValues(renderingEvaluation, PORTS[0]);
+    for (String portValue : PORTS) {
+      final String[] elements = renderingEvaluation.render(template, portValue).split("/");
+      final String expected = (elements.length > 1) ? elements[1] : "";
+
+      final String serverName = renderingEvaluation.render("<serverName>", portValue);
+
+      Assert.assertEquals(
+          compiledTemplate.renderServiceId(containerValues, serverName), expected, portValue);
+    }
+  }
+
+  @Test
+  public void testNotCompiled() {
+    Assert.assertNull(CompiledRouteTemplate.compile(null));
+    Assert.assertNull(CompiledRouteTemplate.compile("host/<if(serverName)><serverName><endif>"));
+    Assert.assertNull(CompiledRouteTemplate.compile("host/\\<serverName>"));
+    Assert.assertNull(CompiledRouteTemplate.compile("host/<serverName"));
+    // unknown placeholders may depend on the port
+    Assert.assertNull(CompiledRouteTemplate.compile("host/<serverName>-<port>"));
+    Assert.assertNull(CompiledRouteTemplate.compile("<other>/<serverName>"));
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ConfigurationWatcherTest {
+
+  @Test
+  public void testApplyOnlyChanges() throws Exception {
+    final Path file = Files.createTempDirectory("traefik-config").resolve("traefik.properties");
+    final List<Properties> applied = new ArrayList<>();
+    final ConfigurationWatcher watcher = new ConfigurationWatcher(file, applied::add);
+
+    // a missing file is an empty configuration
+    Assert.assertTrue(watcher.load());
+    Assert.assertTrue(applied.get(0).isEmpty());
+
+    Files.write(file, "enabled=false\ntemplate=<serverName>\n".getBytes(UTF_8));
+    Assert.assertTrue(watcher.load());
+    Assert.assertEquals(applied.get(1).getProperty("enabled"), "false");
+    Assert.assertEquals(applied.get(1).getProperty("template"), "<serverName>");
+
+    // unchanged content is not applied again
+    Files.write(file, "template=<serverName>\nenabled=false\n".getBytes(UTF_8));
+    Assert.assertFalse(watcher.load());
+    Assert.assertEquals(applied.size(), 2);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class FileRouteProviderTest {
+
+  private Path directory;
+  private FileRouteProvider provider;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("traefik-routes");
+    provider = new FileRouteProvider(directory);
+  }
+
+  @Test
+  public void testPublishAndRemove() throws Exception {
+    provider.publish(
+        "workspace1_machine1",
+        Arrays.asList(
+            new TraefikRoute("service-wsagent", "4401", "http", "PathPrefixStrip:/wsagent"),
+            new TraefikRoute("service-exec", "4411", "http", "PathPrefixStrip:/exec")));
+
+    final Path file = provider.file("workspace1_machine1");
+    final String toml = new String(Files.readAllBytes(file), UTF_8);
+    Assert.assertTrue(toml.contains("url = \"http://workspace1_machine1:4401\""), toml);
+    Assert.assertTrue(toml.contains("backend = \"workspace1_machine1-service-exec\""), toml);
+    Assert.assertTrue(toml.contains("rule = \"PathPrefixStrip:/wsagent\""), toml);
+    // only the route file is left, the temporary one has been renamed
+    Assert.assertEquals(Files.list(directory).count(), 1);
+
+    provider.remove("workspace1_machine1");
+    Assert.assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void testPublishReplacesRoutes() throws Exception {
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-a", "80", "http", "Path:/a")));
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-b", "81", "http", "Path:/b")));
+
+    final String toml = new String(Files.readAllBytes(provider.file("machine")), UTF_8);
+    Assert.assertFalse(toml.contains("service-a"), toml);
+    Assert.assertTrue(toml.contains("service-b"), toml);
+  }
+}
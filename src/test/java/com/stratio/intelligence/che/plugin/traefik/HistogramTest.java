@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void testEmpty() {
+    final Histogram histogram = new Histogram();
+
+    Assert.assertEquals(histogram.getCount(), 0);
+    Assert.assertEquals(histogram.getPercentile(0.99), 0);
+    Assert.assertEquals(histogram.getMean(), 0d);
+  }
+
+  @Test
+  public void testExactSmallValues() {
+    final Histogram histogram = new Histogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+
+    Assert.assertEquals(histogram.getCount(), 10);
+    Assert.assertEquals(histogram.getMax(), 10);
+    Assert.assertEquals(histogram.getPercentile(0.5), 5);
+    Assert.assertEquals(histogram.getPercentile(1), 10);
+    Assert.assertEquals(histogram.getMean(), 5.5d);
+  }
+
+  @Test
+  public void testPercentilesWithinPrecision() {
+    final Histogram histogram = new Histogram();
+    for (long i = 1; i <= 100_000; i++) {
+      histogram.record(i * 1000);
+    }
+
+    assertWithinPrecision(histogram.getPercentile(0.5), 50_000_000);
+    assertWithinPrecision(histogram.getPercentile(0.99), 99_000_000);
+    Assert.assertEquals(histogram.getMax(), 100_000_000);
+  }
+
+  @Test
+  public void testCountAtMostAndMerge() {
+    final Histogram first = new Histogram();
+    final Histogram second = new Histogram();
+    for (int i = 1; i <= 10; i++) {
+      first.record(i);
+      second.record(i + 10);
+    }
+
+    Assert.assertEquals(first.getCountAtMost(5), 5);
+    Assert.assertEquals(first.getCountAtMost(100), 10);
+    Assert.assertEquals(first.getCountAtMost(-1), 0);
+    Assert.assertEquals(Histogram.getPercentile(0.5, first, second), 10);
+    Assert.assertEquals(Histogram.getPercentile(1, first, second), 20);
+  }
+
+  private static void assertWithinPrecision(long actual, long expected) {
+    Assert.assertTrue(
+        actual >= expected && actual <= expected * 1.125,
+        actual + " is not within 12.5% of " + expected);
+  }
+}
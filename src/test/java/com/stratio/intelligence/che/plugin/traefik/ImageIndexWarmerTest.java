@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ExposedPort;
+import org.eclipse.che.plugin.docker.client.json.Image;
+import org.eclipse.che.plugin.docker.client.json.ImageConfig;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.params.GetEventsParams;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ImageIndexWarmerTest {
+
+  private static final String STACK_IMAGE = "eclipse/ubuntu_jdk8";
+  private static final String IMAGE_ID = "sha256:0123456789abcdef";
+
+  private DockerConnector dockerConnector;
+  private Path snapshotFile;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+    snapshotFile = Files.createTempDirectory("traefik-snapshot").resolve("images.bin");
+
+    dockerConnector = mock(DockerConnector.class);
+    // the event stream stays open
+    doAnswer(
+            invocation -> {
+              Thread.sleep(Long.MAX_VALUE);
+              return null;
+            })
+        .when(dockerConnector)
+        .getEvents(any(GetEventsParams.class), any());
+    final Image image = mock(Image.class);
+    when(image.getId()).thenReturn(IMAGE_ID);
+    when(image.getRepoTags()).thenReturn(new String[] {STACK_IMAGE + ":latest"});
+    when(dockerConnector.listImages()).thenReturn(Collections.singletonList(image));
+    final ImageConfig imageConfig = mock(ImageConfig.class);
+    when(imageConfig.getLabels()).thenReturn(Collections.singletonMap("foo", "bar"));
+    when(imageConfig.getExposedPorts())
+        .thenReturn(Collections.singletonMap("8080/tcp", new ExposedPort()));
+    when(imageConfig.getEnv()).thenReturn(new String[] {"HELLO=world"});
+    final ImageInfo imageInfo = mock(ImageInfo.class);
+    when(imageInfo.getId()).thenReturn(IMAGE_ID);
+    when(imageInfo.getConfig()).thenReturn(imageConfig);
+    when(dockerConnector.inspectImage(any(InspectImageParams.class))).thenReturn(imageInfo);
+  }
+
+  @Test
+  public void testWarmAndReloadSnapshot() throws Exception {
+    final ImageMetadataCache cache = new ImageMetadataCache(10, 1, TimeUnit.MINUTES);
+    final ImageIndexWarmer warmer =
+        new ImageIndexWarmer(
+            cache, snapshotFile, Arrays.asList(STACK_IMAGE, "missing/image:1.0"), 2);
+
+    // only the stack image present on the host is inspected
+    Assert.assertEquals(warmer.warm(dockerConnector), 1);
+    Assert.assertEquals(cache.getIfPresent(STACK_IMAGE).getId(), IMAGE_ID);
+    Assert.assertTrue(Files.exists(snapshotFile));
+
+    // next start: the snapshot fills the cache without calling the daemon
+    final ImageMetadataCache restarted = new ImageMetadataCache(10, 1, TimeUnit.MINUTES);
+    Assert.assertEquals(
+        new ImageIndexWarmer(restarted, snapshotFile, Collections.emptyList(), 2).loadSnapshot(),
+        1);
+    final ImageMetadata loaded = restarted.getIfPresent(STACK_IMAGE);
+    Assert.assertEquals(loaded.getId(), IMAGE_ID);
+    Assert.assertEquals(loaded.getLabels(), Collections.singletonMap("foo", "bar"));
+    Assert.assertEquals(loaded.getExposedPorts(), Collections.singleton("8080/tcp"));
+    Assert.assertEquals(loaded.getEnv(), new String[] {"HELLO=world"});
+    verify(dockerConnector, times(1)).inspectImage(any(InspectImageParams.class));
+  }
+
+  @Test
+  public void testDropStaleSnapshotEntries() throws Exception {
+    final ImageMetadataCache cache = new ImageMetadataCache(10, 1, TimeUnit.MINUTES);
+    cache.put(STACK_IMAGE, new ImageMetadata("sha256:previous", null, null, null));
+    cache.put("removed/image:1.0", new ImageMetadata("sha256:removed", null, null, null));
+
+    new ImageIndexWarmer(cache, null, Collections.singletonList(STACK_IMAGE), 2)
+        .warm(dockerConnector);
+
+    // the tag was pulled again while the server was down
+    Assert.assertEquals(cache.getIfPresent(STACK_IMAGE).getId(), IMAGE_ID);
+    Assert.assertNull(cache.getIfPresent("removed/image:1.0"));
+  }
+
+  @Test
+  public void testMissingSnapshot() {
+    Assert.assertEquals(
+        new ImageIndexWarmer(
+                new ImageMetadataCache(10, 1, TimeUnit.MINUTES),
+                snapshotFile,
+                Collections.emptyList(),
+                2)
+            .loadSnapshot(),
+        0);
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.MessageProcessor;
+import org.eclipse.che.plugin.docker.client.json.Event;
+import org.eclipse.che.plugin.docker.client.json.ExposedPort;
+import org.eclipse.che.plugin.docker.client.json.ImageConfig;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.params.GetEventsParams;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+@Listeners(MockitoTestNGListener.class)
+public class ImageMetadataCacheTest {
+
+  private static final String IMAGE = "eclipse/ubuntu_jdk8:latest";
+  private static final String IMAGE_ID = "sha256:0123456789abcdef";
+
+  @Mock private DockerConnector dockerConnector;
+
+  @Mock private ImageInfo imageInfo;
+
+  @Mock private ImageConfig imageConfig;
+
+  private ImageMetadataCache imageMetadataCache;
+
+  /** Keeps the events streams of the tests open. */
+  private final CountDownLatch streamClosed = new CountDownLatch(1);
+
+  @AfterMethod
+  protected void tearDown() {
+    streamClosed.countDown();
+  }
+
+  @BeforeMethod
+  protected void setup() throws Exception {
+    imageMetadataCache = new ImageMetadataCache(10, 1, TimeUnit.MINUTES);
+
+    when(dockerConnector.inspectImage(any(InspectImageParams.class))).thenReturn(imageInfo);
+    when(imageInfo.getId()).thenReturn(IMAGE_ID);
+    when(imageInfo.getConfig()).thenReturn(imageConfig);
+    when(imageConfig.getLabels()).thenReturn(Collections.singletonMap("foo", "bar"));
+    when(imageConfig.getExposedPorts())
+        .thenReturn(Collections.singletonMap("8080/tcp", new ExposedPort()));
+    when(imageConfig.getEnv()).thenReturn(new String[] {"HELLO=world"});
+  }
+
+  @Test
+  public void testInspectOnlyOnce() throws Exception {
+    final ImageMetadata first = imageMetadataCache.get(dockerConnector, IMAGE);
+    final ImageMetadata second = imageMetadataCache.get(dockerConnector, IMAGE);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(first.getId(), IMAGE_ID);
+    Assert.assertEquals(first.getLabels().get("foo"), "bar");
+    Assert.assertTrue(first.getExposedPorts().contains("8080/tcp"));
+    Assert.assertEquals(first.getEnv(), new String[] {"HELLO=world"});
+    verify(dockerConnector, times(1)).inspectImage(any(InspectImageParams.class));
+    Assert.assertEquals(imageMetadataCache.getHitCount(), 1);
+    Assert.assertEquals(imageMetadataCache.getMissCount(), 1);
+  }
+
+  @Test
+  public void testInvalidateByImageId() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    // a re-pulled tag is reported by the daemon with the id of the previous image
+    imageMetadataCache.invalidate(IMAGE_ID);
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    verify(dockerConnector, times(2)).inspectImage(any(InspectImageParams.class));
+    Assert.assertEquals(imageMetadataCache.getMissCount(), 2);
+  }
+
+  @Test
+  public void testInvalidateByReference() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    imageMetadataCache.invalidate(IMAGE);
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    verify(dockerConnector, times(2)).inspectImage(any(InspectImageParams.class));
+  }
+
+  @Test
+  public void testEvictionBySize() throws Exception {
+    imageMetadataCache = new ImageMetadataCache(1, 1, TimeUnit.MINUTES);
+    imageMetadataCache.get(dockerConnector, IMAGE);
+    when(imageInfo.getId()).thenReturn("sha256:fedcba9876543210");
+
+    imageMetadataCache.get(dockerConnector, "eclipse/node:latest");
+
+    Assert.assertEquals(imageMetadataCache.getSize(), 1);
+    Assert.assertTrue(imageMetadataCache.getEvictionCount() > 0);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInspectionFailure() throws Exception {
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenThrow(new IOException("daemon down"));
+
+    imageMetadataCache.get(dockerConnector, IMAGE);
+  }
+
+  @Test
+  public void testProbeNotCountedAsHit() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    Assert.assertNotNull(imageMetadataCache.getIfPresent(IMAGE));
+    Assert.assertNull(imageMetadataCache.getIfPresent("eclipse/node:latest"));
+    Assert.assertEquals(imageMetadataCache.getHitCount(), 0);
+    Assert.assertEquals(imageMetadataCache.getMissCount(), 1);
+  }
+
+  @Test
+  public void testStreamEndingAtOnceKeepsEntries() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    imageMetadataCache.watch(dockerConnector);
+
+    verify(dockerConnector, timeout(1000)).getEvents(any(GetEventsParams.class), any());
+    Thread.sleep(100);
+    Assert.assertNotNull(imageMetadataCache.getIfPresent(IMAGE));
+    Assert.assertEquals(imageMetadataCache.getInvalidationCount(), 0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testLostStreamClearsEntries() throws Exception {
+    final Event event = mock(Event.class);
+    when(event.getId()).thenReturn("sha256:fedcba9876543210");
+    when(event.getStatus()).thenReturn("pull");
+    doAnswer(
+            invocation -> {
+              ((MessageProcessor<Event>) invocation.getArgument(1)).process(event);
+              return null;
+            })
+        .when(dockerConnector)
+        .getEvents(any(GetEventsParams.class), any());
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    imageMetadataCache.watch(dockerConnector);
+
+    verify(dockerConnector, timeout(1000)).getEvents(any(GetEventsParams.class), any());
+    for (int i = 0; i < 100 && imageMetadataCache.getIfPresent(IMAGE) != null; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertNull(imageMetadataCache.getIfPresent(IMAGE));
+  }
+
+  @Test
+  public void testEvictedAtOnceInspectedOnce() throws Exception {
+    imageMetadataCache = new ImageMetadataCache(0, 1, TimeUnit.MINUTES);
+
+    final ImageMetadata imageMetadata = imageMetadataCache.get(dockerConnector, IMAGE);
+
+    Assert.assertEquals(imageMetadata.getId(), IMAGE_ID);
+    verify(dockerConnector, times(1)).inspectImage(any(InspectImageParams.class));
+  }
+
+  @Test
+  public void testTagEventClearsReferences() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+
+    // the event names the newly tagged image, not the previous image of the tag
+    watchEvent("tag", "sha256:fedcba9876543210");
+
+    for (int i = 0; i < 100 && imageMetadataCache.getIfPresent(IMAGE) != null; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertNull(imageMetadataCache.getIfPresent(IMAGE));
+  }
+
+  @Test
+  public void testPullEventClearsAlias() throws Exception {
+    imageMetadataCache.get(dockerConnector, IMAGE);
+    imageMetadataCache.get(dockerConnector, "eclipse/node:8");
+
+    watchEvent("pull", "eclipse/ubuntu_jdk8");
+
+    for (int i = 0; i < 100 && imageMetadataCache.getIfPresent(IMAGE) != null; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertNull(imageMetadataCache.getIfPresent(IMAGE));
+    Assert.assertNotNull(imageMetadataCache.getIfPresent("eclipse/node:8"));
+  }
+
+  @Test
+  public void testAlias() {
+    Assert.assertEquals(ImageMetadataCache.alias("eclipse/node"), "eclipse/node:latest");
+    Assert.assertEquals(ImageMetadataCache.alias("eclipse/node:latest"), "eclipse/node");
+    Assert.assertEquals(ImageMetadataCache.alias("host:5000/node"), "host:5000/node:latest");
+    Assert.assertNull(ImageMetadataCache.alias("eclipse/node:8"));
+    Assert.assertNull(ImageMetadataCache.alias("eclipse/node@sha256:0123"));
+    Assert.assertNull(ImageMetadataCache.alias(IMAGE_ID));
+  }
+
+  /** Watches a stream delivering a single event and then staying open */
+  @SuppressWarnings("unchecked")
+  private void watchEvent(String status, String id) throws Exception {
+    final Event event = mock(Event.class);
+    when(event.getId()).thenReturn(id);
+    when(event.getStatus()).thenReturn(status);
+    doAnswer(
+            invocation -> {
+              ((MessageProcessor<Event>) invocation.getArgument(1)).process(event);
+              streamClosed.await(10, TimeUnit.SECONDS);
+              return null;
+            })
+        .when(dockerConnector)
+        .getEvents(any(GetEventsParams.class), any());
+
+    imageMetadataCache.watch(dockerConnector);
+
+    verify(dockerConnector, timeout(1000)).getEvents(any(GetEventsParams.class), any());
+  }
+}
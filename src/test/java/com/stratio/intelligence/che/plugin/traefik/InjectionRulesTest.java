@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.stratio.intelligence.che.plugin.traefik.InjectionRules.Injection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InjectionRulesTest {
+
+  private static InjectionRules rules(String... properties) {
+    final Properties configuration = new Properties();
+    for (int i = 0; i < properties.length; i += 2) {
+      configuration.setProperty(properties[i], properties[i + 1]);
+    }
+    return new InjectionRules(configuration);
+  }
+
+  @Test
+  public void testMatchByImageAndLabel() {
+    final InjectionRules rules =
+        rules(
+            "inject.vault.image",
+            "stratio/*:*",
+            "inject.vault.label",
+            "com.stratio.vault=true",
+            "inject.vault.env.STRATIO_VAULT_PATH",
+            "/path/to/vault",
+            "enabled",
+            "true");
+    final Map<String, String> labels = Collections.singletonMap("com.stratio.vault", "true");
+
+    Assert.assertTrue(rules.needsImageLabels("stratio/notebook:1.0", null));
+    Assert.assertFalse(rules.needsImageLabels("eclipse/ubuntu_jdk8:latest", null));
+    final Injection injection = rules.match("stratio/notebook:1.0", labels);
+    Assert.assertNotNull(injection);
+    Assert.assertEquals(
+        injection.getEnv(new String[] {"CHE_WORKSPACE_ID=work123"}),
+        new String[] {"CHE_WORKSPACE_ID=work123", "STRATIO_VAULT_PATH=/path/to/vault"});
+    Assert.assertNull(injection.getCmd());
+    Assert.assertNull(injection.getUser());
+
+    Assert.assertNull(rules.match("eclipse/ubuntu_jdk8:latest", labels));
+    Assert.assertNull(rules.match("stratio/notebook:1.0", Collections.emptyMap()));
+    Assert.assertNull(
+        rules.match(
+            "stratio/notebook:1.0", Collections.singletonMap("com.stratio.vault", "false")));
+  }
+
+  @Test
+  public void testRulesAppliedByName() {
+    final InjectionRules rules =
+        rules(
+            "inject.a.env.FIRST",
+            "1",
+            "inject.a.user",
+            "root",
+            "inject.a.cmd.0",
+            "/bin/sh",
+            "inject.a.cmd.1",
+            "-c",
+            "inject.a.cmd.2",
+            "tail -f /dev/null",
+            "inject.b.label",
+            "com.stratio.user",
+            "inject.b.env.SECOND",
+            "2",
+            "inject.b.user",
+            "stratio");
+
+    final Injection all =
+        rules.match("any", Collections.singletonMap("com.stratio.user", "anything"));
+    Assert.assertEquals(all.getEnv(null), new String[] {"FIRST=1", "SECOND=2"});
+    Assert.assertEquals(all.getCmd(), new String[] {"/bin/sh", "-c", "tail -f /dev/null"});
+    Assert.assertEquals(all.getUser(), "stratio");
+
+    // the container has the label, whatever the value of the image
+    Assert.assertFalse(
+        rules.needsImageLabels("any", Collections.singletonMap("com.stratio.user", "me")));
+    Assert.assertTrue(rules.needsImageLabels("any", Collections.emptyMap()));
+
+    final Injection first = rules.match("any", Collections.emptyMap());
+    Assert.assertEquals(first.getEnv(null), new String[] {"FIRST=1"});
+    Assert.assertEquals(first.getUser(), "root");
+  }
+
+  @Test
+  public void testNoRules() {
+    final InjectionRules rules = rules("enabled", "true", "template", "host/<serverName>");
+
+    Assert.assertTrue(rules.isEmpty());
+    Assert.assertFalse(rules.needsImageLabels("any", null));
+    Assert.assertNull(rules.match("any", Collections.emptyMap()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownSetting() {
+    rules("inject.vault.entrypoint", "/bin/sh");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testCmdWithMissingArgument() {
+    rules("inject.vault.cmd.0", "/bin/sh", "inject.vault.cmd.2", "sleep 1");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRuleWithoutChange() {
+    rules("inject.vault.image", "stratio/*");
+  }
+}
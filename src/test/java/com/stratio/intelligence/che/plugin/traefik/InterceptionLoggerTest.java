@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InterceptionLoggerTest {
+
+  @Test
+  public void testRedactEnv() {
+    final String redacted =
+        InterceptionLogger.redactEnv(
+            new String[] {"CHE_WORKSPACE_ID=work123", "VAULT_TOKEN=s3cr3t=", "NO_VALUE"});
+
+    Assert.assertEquals(redacted, "[CHE_WORKSPACE_ID=***, VAULT_TOKEN=***, NO_VALUE]");
+    Assert.assertFalse(redacted.contains("s3cr3t"));
+  }
+
+  @Test
+  public void testRedactNullEnv() {
+    Assert.assertEquals(InterceptionLogger.redactEnv(null), "null");
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class KeyValueRouteProviderTest {
+
+  private InMemoryKeyValueStore keyValueStore;
+  private KeyValueRouteProvider provider;
+
+  @BeforeMethod
+  public void setup() {
+    keyValueStore = new InMemoryKeyValueStore();
+    provider = new KeyValueRouteProvider(KeyValueRouteProvider.DEFAULT_PREFIX);
+    provider.setKeyValueStore(keyValueStore);
+  }
+
+  @Test
+  public void testPublishAndRemove() throws Exception {
+    provider.publish(
+        "machine",
+        Collections.singletonList(
+            new TraefikRoute("service-wsagent", "4401", "http", "PathPrefixStrip:/wsagent")));
+
+    Assert.assertEquals(
+        keyValueStore
+            .getEntries()
+            .get("traefik/backends/machine@service-wsagent/servers/server/url"),
+        "http://machine:4401");
+    Assert.assertEquals(
+        keyValueStore.getEntries().get("traefik/frontends/machine@service-wsagent/backend"),
+        "machine@service-wsagent");
+    Assert.assertEquals(
+        keyValueStore.getEntries().get("traefik/frontends/machine@service-wsagent/entrypoints"),
+        "http");
+    Assert.assertEquals(
+        keyValueStore
+            .getEntries()
+            .get("traefik/frontends/machine@service-wsagent/routes/route/rule"),
+        "PathPrefixStrip:/wsagent");
+
+    provider.remove("machine");
+    Assert.assertTrue(keyValueStore.getEntries().isEmpty());
+  }
+
+  @Test
+  public void testPublishReplacesRoutes() throws Exception {
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-a", "80", "http", "Path:/a")));
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-b", "81", "http", "Path:/b")));
+
+    Assert.assertTrue(
+        keyValueStore.getEntries().keySet().stream().noneMatch(key -> key.contains("service-a")));
+    Assert.assertEquals(keyValueStore.getEntries().size(), 4);
+  }
+
+  /** Routes published before a restart are removed, and only those of the container */
+  @Test
+  public void testRemoveAfterRestart() throws Exception {
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-a", "80", "http", "Path:/a")));
+    provider.publish(
+        "machine2",
+        Collections.singletonList(new TraefikRoute("service-a", "80", "http", "Path:/a")));
+
+    final KeyValueRouteProvider restarted =
+        new KeyValueRouteProvider(KeyValueRouteProvider.DEFAULT_PREFIX);
+    restarted.setKeyValueStore(keyValueStore);
+    restarted.remove("machine");
+
+    Assert.assertEquals(keyValueStore.getEntries().size(), 4);
+    Assert.assertTrue(
+        keyValueStore.getEntries().keySet().stream().allMatch(key -> key.contains("/machine2@")));
+  }
+
+  /** The routes kept by a new publication are never missing from the store */
+  @Test
+  public void testPublishKeepsRoutesVisible() throws Exception {
+    final String rule = "traefik/frontends/machine@service-b/routes/route/rule";
+    keyValueStore =
+        new InMemoryKeyValueStore() {
+          @Override
+          public void deleteTree(String prefix) {
+            super.deleteTree(prefix);
+            Assert.assertTrue(getEntries().containsKey(rule));
+          }
+
+          @Override
+          public void deleteAll(Collection<String> keys) {
+            super.deleteAll(keys);
+            Assert.assertTrue(getEntries().containsKey(rule));
+          }
+        };
+    provider.setKeyValueStore(keyValueStore);
+    provider.publish(
+        "machine",
+        Arrays.asList(
+            new TraefikRoute("service-a", "80", "http", "Path:/a"),
+            new TraefikRoute("service-b", "81", "http", "Path:/b")));
+
+    provider.publish(
+        "machine",
+        Collections.singletonList(new TraefikRoute("service-b", "81", "http", "Path:/b2")));
+
+    Assert.assertEquals(keyValueStore.getEntries().get(rule), "Path:/b2");
+    Assert.assertTrue(
+        keyValueStore.getEntries().keySet().stream().noneMatch(key -> key.contains("service-a")));
+    Assert.assertEquals(keyValueStore.getEntries().size(), 4);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MergedLabelsTest {
+
+  @Test
+  public void testImageLabelsTakePrecedence() {
+    final Map<String, String> containerLabels = new HashMap<>();
+    containerLabels.put("a", "container");
+    containerLabels.put("b", "container");
+    final Map<String, String> merged =
+        new MergedLabels(containerLabels, ImmutableMap.of("b", "image", "c", "image"));
+
+    final Map<String, String> expected = new HashMap<>();
+    expected.put("a", "container");
+    expected.put("b", "image");
+    expected.put("c", "image");
+    Assert.assertEquals(merged, expected);
+    Assert.assertEquals(merged.size(), 3);
+    Assert.assertEquals(merged.get("b"), "image");
+    Assert.assertNull(merged.get("d"));
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    new MergedLabels(new HashMap<>(), ImmutableMap.of()).put("a", "b");
+  }
+
+  @Test
+  public void testMergedExposedPorts() {
+    final ImageMetadata imageMetadata =
+        new ImageMetadata("id", null, ImmutableSet.of("22/tcp", "8080/tcp"), null);
+    final MergedExposedPorts merged =
+        new MergedExposedPorts(ImmutableSet.of("4401/tcp", "22/tcp"), imageMetadata);
+
+    Assert.assertEquals(merged, ImmutableSet.of("4401/tcp", "22/tcp", "8080/tcp"));
+    Assert.assertEquals(merged.size(), 3);
+    final List<String> ports = new ArrayList<>();
+    for (ParsedPort parsedPort : merged.parsed()) {
+      ports.add(parsedPort.getPort());
+    }
+    Assert.assertEquals(ports, Arrays.asList("4401", "22", "8080"));
+  }
+
+  @Test
+  public void testConcatEnv() {
+    final String[] container = {"A=1"};
+    final String[] image = {"B=2", "C=3"};
+    Assert.assertEquals(
+        TraefikCreateContainerInterceptor.concat(container, image),
+        new String[] {"A=1", "B=2", "C=3"});
+    Assert.assertSame(
+        TraefikCreateContainerInterceptor.concat(container, new String[0]), container);
+    Assert.assertSame(TraefikCreateContainerInterceptor.concat(null, image), image);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import com.google.common.primitives.Primitives;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NFSHostConfigTest {
+
+  /**
+   * Every HostConfig property, present or added by a future che-plugin-docker-client version, is
+   * set to a non default value and must be found in the copy.
+   */
+  @Test
+  public void testCopiesEveryProperty() throws Exception {
+    final HostConfig hostConfig = new HostConfig();
+    int properties = 0;
+    for (Method setter : HostConfig.class.getMethods()) {
+      if (!setter.getName().startsWith("set") || setter.getParameterCount() != 1) {
+        continue;
+      }
+      final Method getter = NFSHostConfig.getter(setter);
+      Assert.assertNotNull(getter, setter.getName() + " has no getter, it cannot be copied");
+      setter.invoke(hostConfig, sample(setter.getParameterTypes()[0]));
+      properties++;
+    }
+    Assert.assertTrue(properties > 30, "only " + properties + " HostConfig properties found");
+
+    final NFSHostConfig copy = new NFSHostConfig(hostConfig);
+
+    for (Method setter : HostConfig.class.getMethods()) {
+      final Method getter = NFSHostConfig.getter(setter);
+      if (getter != null) {
+        final Object expected = getter.invoke(hostConfig);
+        final Object actual = getter.invoke(copy);
+        Assert.assertTrue(
+            Objects.deepEquals(expected, actual),
+            getter.getName() + " not copied: expected " + expected + " but was " + actual);
+      }
+    }
+  }
+
+  @Test
+  public void testVolumeDriverIsKept() {
+    final NFSHostConfig copy = new NFSHostConfig(new HostConfig());
+    copy.setVolumeDriver("nfs");
+
+    Assert.assertEquals(copy.getVolumeDriver(), "nfs");
+    Assert.assertTrue(copy.toString().endsWith(", volumeDriver='nfs'}"));
+  }
+
+  /** @return a non default value of a type */
+  private static Object sample(Class<?> type) throws Exception {
+    final Class<?> wrapper = Primitives.wrap(type);
+    if (wrapper == Boolean.class) {
+      return true;
+    }
+    if (wrapper == Integer.class) {
+      return 7;
+    }
+    if (wrapper == Long.class) {
+      return 7L;
+    }
+    if (wrapper == Double.class) {
+      return 7d;
+    }
+    if (wrapper == Float.class) {
+      return 7f;
+    }
+    if (wrapper == Short.class) {
+      return (short) 7;
+    }
+    if (wrapper == Byte.class) {
+      return (byte) 7;
+    }
+    if (type == String.class) {
+      return "sample";
+    }
+    if (type.isArray()) {
+      final Object array = Array.newInstance(type.getComponentType(), 1);
+      Array.set(array, 0, sample(type.getComponentType()));
+      return array;
+    }
+    if (type.isEnum()) {
+      return type.getEnumConstants()[0];
+    }
+    if (type == Map.class) {
+      return Collections.singletonMap("sample", "sample");
+    }
+    if (type == List.class) {
+      return Collections.singletonList("sample");
+    }
+    if (type == Set.class) {
+      return Collections.singleton("sample");
+    }
+    // Docker json beans (RestartPolicy, LogConfig, Ulimit...)
+    return type.getConstructor().newInstance();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import org.eclipse.che.plugin.docker.client.json.HostConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NFSVolumePlannerTest {
+
+  private final NFSVolumePlanner planner =
+      new NFSVolumePlanner("nfs", "10.0.0.5", "/exports/che/", "nocopy", "/projects");
+
+  @Test
+  public void testRewriteWorkspaceBinds() {
+    final HostConfig hostConfig = new HostConfig();
+    hostConfig.setBinds(
+        new String[] {
+          "/var/run/docker.sock:/var/run/docker.sock",
+          "/data/workspaces/wksp-1:/projects:Z",
+          "/usr/local/che/terminal:/mnt/che/terminal:ro"
+        });
+    hostConfig.setMemory(1024);
+
+    final HostConfig planned = planner.plan("workspace123", hostConfig);
+
+    Assert.assertTrue(planned instanceof NFSHostConfig);
+    Assert.assertEquals(((NFSHostConfig) planned).getVolumeDriver(), "nfs");
+    Assert.assertEquals(
+        planned.getBinds(),
+        new String[] {
+          "/var/run/docker.sock:/var/run/docker.sock",
+          "10.0.0.5/exports/che/workspace123/projects:/projects:Z,nocopy",
+          "/usr/local/che/terminal:/mnt/che/terminal:ro"
+        });
+    Assert.assertEquals(planned.getMemory(), 1024);
+    // the original configuration is not modified
+    Assert.assertEquals(hostConfig.getBinds()[1], "/data/workspaces/wksp-1:/projects:Z");
+  }
+
+  @Test
+  public void testSameVolumeOnRestart() {
+    final HostConfig firstStart = new HostConfig();
+    firstStart.setBinds(new String[] {"/data/workspaces/wksp-1:/projects"});
+    final HostConfig restart = new HostConfig();
+    restart.setBinds(new String[] {"/data/other/path:/projects"});
+
+    Assert.assertEquals(
+        planner.plan("workspace123", firstStart).getBinds(),
+        planner.plan("workspace123", restart).getBinds());
+  }
+
+  @Test
+  public void testKeepHostConfigWithoutWorkspaceBinds() {
+    final HostConfig hostConfig = new HostConfig();
+    hostConfig.setBinds(new String[] {"/var/run/docker.sock:/var/run/docker.sock"});
+
+    Assert.assertSame(planner.plan("workspace123", hostConfig), hostConfig);
+    Assert.assertNull(planner.plan("workspace123", null));
+  }
+}
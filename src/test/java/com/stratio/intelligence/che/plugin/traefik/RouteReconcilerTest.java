@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ContainerListEntry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RouteReconcilerTest {
+
+  private static final TraefikRoute ROUTE =
+      new TraefikRoute("service-wsagent", "4401", "http", "PathPrefixStrip:/wsagent");
+
+  @Test
+  public void testIndexByIdNameAndWorkspace() {
+    final RouteIndex routeIndex = new RouteIndex();
+    routeIndex.put("id1", "machine1", "workspace1", Collections.singletonList(ROUTE));
+    routeIndex.put("id2", "machine2", "workspace1", Collections.singletonList(ROUTE));
+
+    Assert.assertEquals(routeIndex.get("/machine1").getContainerId(), "id1");
+    Assert.assertEquals(routeIndex.get("id2").getContainerName(), "machine2");
+    Assert.assertEquals(routeIndex.getWorkspaceContainers("workspace1").size(), 2);
+
+    Assert.assertNotNull(routeIndex.remove("machine1"));
+    Assert.assertNull(routeIndex.get("id1"));
+    Assert.assertEquals(routeIndex.getWorkspaceContainers("workspace1").size(), 1);
+    Assert.assertNotNull(routeIndex.remove("id2"));
+    Assert.assertTrue(routeIndex.getWorkspaceContainers("workspace1").isEmpty());
+    Assert.assertEquals(routeIndex.size(), 0);
+  }
+
+  @Test
+  public void testPurgeOrphans() throws Exception {
+    final RouteIndex routeIndex = new RouteIndex();
+    routeIndex.put("running", "machine1", "workspace1", Collections.singletonList(ROUTE));
+    routeIndex.put("crashed", "machine2", "workspace1", Collections.singletonList(ROUTE));
+    final InMemoryKeyValueStore keyValueStore = new InMemoryKeyValueStore();
+    final KeyValueRouteProvider routeProvider =
+        new KeyValueRouteProvider(KeyValueRouteProvider.DEFAULT_PREFIX);
+    routeProvider.setKeyValueStore(keyValueStore);
+    routeProvider.publish("machine1", Collections.singletonList(ROUTE));
+    routeProvider.publish("machine2", Collections.singletonList(ROUTE));
+    final TraefikMetrics metrics = new TraefikMetrics();
+
+    final ContainerListEntry running = mock(ContainerListEntry.class);
+    when(running.getId()).thenReturn("running");
+    final DockerConnector dockerConnector = mock(DockerConnector.class);
+    when(dockerConnector.listContainers()).thenReturn(Collections.singletonList(running));
+
+    // no grace period
+    final RouteReconciler reconciler = new RouteReconciler(routeIndex, routeProvider, metrics, 0);
+
+    Assert.assertEquals(reconciler.reconcile(dockerConnector), 1);
+    Assert.assertNotNull(routeIndex.get("running"));
+    Assert.assertNull(routeIndex.get("crashed"));
+    Assert.assertTrue(
+        keyValueStore.getEntries().keySet().stream().noneMatch(key -> key.contains("machine2")));
+    Assert.assertEquals(metrics.getOrphanCount(), 1);
+    Assert.assertEquals(metrics.getTimer(TraefikMetrics.Phase.RECONCILE).getCount(), 1);
+
+    // nothing left to purge
+    Assert.assertEquals(reconciler.reconcile(dockerConnector), 0);
+  }
+
+  @Test
+  public void testKeepRecentContainers() throws Exception {
+    final RouteIndex routeIndex = new RouteIndex();
+    routeIndex.put("created", "machine1", null, Collections.singletonList(ROUTE));
+    final DockerConnector dockerConnector = mock(DockerConnector.class);
+    when(dockerConnector.listContainers()).thenReturn(Collections.emptyList());
+
+    final RouteReconciler reconciler =
+        new RouteReconciler(routeIndex, null, new TraefikMetrics(), 60);
+
+    Assert.assertEquals(reconciler.reconcile(dockerConnector), 0);
+    Assert.assertNotNull(routeIndex.get("created"));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RouteShardingTest {
+
+  private static final int WORKSPACES = 10000;
+
+  @Test
+  public void testParseShards() {
+    final RouteSharding routeSharding = new RouteSharding("http, http2:proxy-b ,");
+
+    Assert.assertEquals(routeSharding.getShards().size(), 2);
+    Assert.assertEquals(routeSharding.getShards().get(0).getEntryPoint(), "http");
+    Assert.assertNull(routeSharding.getShards().get(0).getTag());
+    Assert.assertEquals(routeSharding.getShards().get(1).getEntryPoint(), "http2");
+    Assert.assertEquals(routeSharding.getShards().get(1).getTag(), "proxy-b");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNoShard() {
+    new RouteSharding(" , ");
+  }
+
+  @Test
+  public void testSpreadAndStable() {
+    final RouteSharding routeSharding = new RouteSharding("a,b,c,d");
+    final Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < WORKSPACES; i++) {
+      final String workspaceId = "workspace" + i;
+      final RouteSharding.Shard shard = routeSharding.shard(workspaceId);
+      Assert.assertSame(routeSharding.shard(workspaceId), shard);
+      counts.merge(shard.getEntryPoint(), 1, Integer::sum);
+    }
+    Assert.assertEquals(counts.size(), 4);
+    for (int count : counts.values()) {
+      Assert.assertTrue(
+          count > WORKSPACES / 4 * 0.9 && count < WORKSPACES / 4 * 1.1, counts.toString());
+    }
+  }
+
+  @Test
+  public void testAddingShardMovesFewWorkspaces() {
+    final RouteSharding before = new RouteSharding("a,b,c,d");
+    final RouteSharding after = new RouteSharding("a,b,c,d,e");
+    int moved = 0;
+    for (int i = 0; i < WORKSPACES; i++) {
+      final String workspaceId = "workspace" + i;
+      final String shard = after.shard(workspaceId).getEntryPoint();
+      if (!before.shard(workspaceId).getEntryPoint().equals(shard)) {
+        // only to the new shard
+        Assert.assertEquals(shard, "e");
+        moved++;
+      }
+    }
+    // about 1/5 of the workspaces
+    Assert.assertTrue(moved < WORKSPACES / 5 * 1.1, Integer.toString(moved));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+
+/**
+ * Docker connector call handed to an interceptor by the stress tests and the benchmarks, without a
+ * mock: it records nothing and costs nothing, so it does not weigh on what is measured.
+ */
+final class StubMethodInvocation implements MethodInvocation {
+
+  private final DockerConnector dockerConnector;
+  private final Object[] arguments;
+  private final Object result;
+
+  /**
+   * @param dockerConnector the intercepted connector
+   * @param params the parameters of the call
+   * @param result what the daemon answers when the interceptor proceeds
+   */
+  StubMethodInvocation(DockerConnector dockerConnector, Object params, Object result) {
+    this.dockerConnector = dockerConnector;
+    this.arguments = new Object[] {params};
+    this.result = result;
+  }
+
+  @Override
+  public Method getMethod() {
+    return null;
+  }
+
+  @Override
+  public Object[] getArguments() {
+    return arguments;
+  }
+
+  @Override
+  public Object proceed() {
+    return result;
+  }
+
+  @Override
+  public Object getThis() {
+    return dockerConnector;
+  }
+
+  @Override
+  public AccessibleObject getStaticPart() {
+    return null;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.che.plugin.docker.client.DockerConnector;
+import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
+import org.eclipse.che.plugin.docker.client.json.ContainerCreated;
+import org.eclipse.che.plugin.docker.client.json.ExposedPort;
+import org.eclipse.che.plugin.docker.client.json.ImageConfig;
+import org.eclipse.che.plugin.docker.client.json.ImageInfo;
+import org.eclipse.che.plugin.docker.client.params.CreateContainerParams;
+import org.eclipse.che.plugin.docker.client.params.InspectImageParams;
+import org.eclipse.che.plugin.docker.machine.CustomServerEvaluationStrategy;
+import org.eclipse.che.plugin.docker.machine.ServerEvaluationStrategyProvider;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Creates containers from many threads through a single interceptor, as parallel workspace starts
+ * do, and checks every container gets exactly its own labels.
+ */
+public class TraefikCreateContainerInterceptorStressTest {
+
+  private static final String TEMPLATE =
+      "predatio.traefik/<serverName>-<machineName>-<workspaceId>";
+  private static final String OTHER_TEMPLATE = "predatio.traefik/<workspaceId>-<serverName>";
+
+  private static final int THREADS = 16;
+  private static final int CONTAINERS = 2000;
+  private static final int PORTS = 4;
+  private static final int WORKSPACES = 50;
+
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  private TraefikCreateContainerInterceptor interceptor;
+  private DockerConnector dockerConnector;
+  private TraefikMetrics metrics;
+  private RouteIndex routeIndex;
+
+  @BeforeClass
+  protected void setup() throws Exception {
+    final ImageConfig imageConfig = mock(ImageConfig.class, withSettings().stubOnly());
+    when(imageConfig.getLabels()).thenReturn(Collections.emptyMap());
+    when(imageConfig.getExposedPorts()).thenReturn(Collections.<String, ExposedPort>emptyMap());
+    when(imageConfig.getEnv()).thenReturn(new String[0]);
+    final ImageInfo imageInfo = mock(ImageInfo.class, withSettings().stubOnly());
+    when(imageInfo.getId()).thenReturn("sha256:0123456789abcdef");
+    when(imageInfo.getConfig()).thenReturn(imageConfig);
+    dockerConnector = mock(DockerConnector.class, withSettings().stubOnly());
+    when(dockerConnector.inspectImage(any(InspectImageParams.class))).thenReturn(imageInfo);
+
+    final ServerEvaluationStrategyProvider serverEvaluationStrategyProvider =
+        mock(ServerEvaluationStrategyProvider.class, withSettings().stubOnly());
+    when(serverEvaluationStrategyProvider.get())
+        .thenReturn(
+            new CustomServerEvaluationStrategy(
+                "10.0.0.1", "127.0.0.1", TEMPLATE, "http", "8080", null));
+
+    final AsyncImageInspector imageInspector =
+        new AsyncImageInspector(new ImageMetadataCache(10, 1, TimeUnit.MINUTES), 4, 5000, 5000);
+    metrics = new TraefikMetrics();
+    routeIndex = new RouteIndex();
+    interceptor = new TraefikCreateContainerInterceptor();
+    interceptor.setServerEvaluationStrategyProvider(serverEvaluationStrategyProvider);
+    interceptor.setTemplate(TEMPLATE);
+    interceptor.setImageInspector(imageInspector);
+    interceptor.setMetrics(metrics);
+    interceptor.setRouteIndex(routeIndex);
+  }
+
+  /** Each container has its own routes, none lost, duplicated or taken from another container */
+  @Test(threadPoolSize = THREADS, invocationCount = CONTAINERS)
+  public void testConcurrentCreations() throws Throwable {
+    final int index = sequence.getAndIncrement();
+    final String workspaceId = "workspace" + (index % WORKSPACES);
+    final String machineName = "machine" + index;
+    final ContainerConfig containerConfig = containerConfig(workspaceId, machineName);
+    final Map<String, String> expected = new HashMap<>(containerConfig.getLabels());
+    for (int port = 0; port < PORTS; port++) {
+      final String prefix = "traefik.service-server" + port;
+      expected.put(prefix + ".port", String.valueOf(4400 + port));
+      expected.put(prefix + ".frontend.entryPoints", "http");
+      expected.put(
+          prefix + ".frontend.rule",
+          "PathPrefixStrip:/server" + port + "-" + machineName + "-" + workspaceId);
+    }
+    expected.put("traefik.frontend.rule", workspaceId + "_" + machineName);
+
+    interceptor.invoke(invocation(containerConfig, workspaceId + "_" + machineName, index));
+
+    Assert.assertEquals(containerConfig.getLabels(), expected);
+  }
+
+  /** Every creation is counted and indexed once */
+  @Test(dependsOnMethods = "testConcurrentCreations")
+  public void testConcurrentCreationsIndexed() {
+    Assert.assertEquals(metrics.getInvocationCount(), CONTAINERS);
+    Assert.assertEquals(metrics.getRouteCount(), CONTAINERS * PORTS);
+    Assert.assertEquals(routeIndex.size(), CONTAINERS);
+  }
+
+  /** A template changed while containers are created applies to all the ports of a container */
+  @Test(dependsOnMethods = "testConcurrentCreationsIndexed")
+  public void testTemplateChangedDuringCreations() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<ContainerConfig>> creations = new ArrayList<>(CONTAINERS);
+    try {
+      for (int i = 0; i < CONTAINERS; i++) {
+        creations.add(executor.submit(this::create));
+        if (i % 10 == 0) {
+          interceptor.overrideTemplate(i % 20 == 0 ? OTHER_TEMPLATE : null);
+        }
+      }
+      for (Future<ContainerConfig> creation : creations) {
+        final ContainerConfig containerConfig = creation.get(1, TimeUnit.MINUTES);
+        final Map<String, String> labels = containerConfig.getLabels();
+        final String machineName = env(containerConfig, "CHE_MACHINE_NAME");
+        final String workspaceId = env(containerConfig, "CHE_WORKSPACE_ID");
+        final boolean other =
+            labels
+                .get("traefik.service-server0.frontend.rule")
+                .equals("PathPrefixStrip:/" + workspaceId + "-server0");
+        for (int port = 0; port < PORTS; port++) {
+          Assert.assertEquals(
+              labels.get("traefik.service-server" + port + ".frontend.rule"),
+              other
+                  ? "PathPrefixStrip:/" + workspaceId + "-server" + port
+                  : "PathPrefixStrip:/server" + port + "-" + machineName + "-" + workspaceId);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      interceptor.overrideTemplate(null);
+    }
+  }
+
+  private ContainerConfig create() throws Exception {
+    final int index = sequence.getAndIncrement();
+    final ContainerConfig containerConfig =
+        containerConfig("workspace" + (index % WORKSPACES), "machine" + index);
+    try {
+      interceptor.invoke(invocation(containerConfig, "container" + index, index));
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new Exception(t);
+    }
+    return containerConfig;
+  }
+
+  private static ContainerConfig containerConfig(String workspaceId, String machineName) {
+    final Map<String, String> labels = new HashMap<>();
+    final Map<String, Map<String, String>> exposedPorts = new HashMap<>();
+    for (int port = 0; port < PORTS; port++) {
+      final String portValue = (4400 + port) + "/tcp";
+      labels.put("che:server:" + portValue + ":ref", "server" + port);
+      labels.put("che:server:" + portValue + ":protocol", "http");
+      exposedPorts.put(portValue, Collections.emptyMap());
+    }
+    labels.put("owner", machineName);
+    final ContainerConfig containerConfig = new ContainerConfig();
+    containerConfig.setImage("IMAGE");
+    containerConfig.setLabels(labels);
+    containerConfig.setExposedPorts(exposedPorts);
+    containerConfig.setEnv(
+        new String[] {"CHE_WORKSPACE_ID=" + workspaceId, "CHE_MACHINE_NAME=" + machineName});
+    return containerConfig;
+  }
+
+  private static String env(ContainerConfig containerConfig, String name) {
+    for (String variable : containerConfig.getEnv()) {
+      if (variable.startsWith(name + "=")) {
+        return variable.substring(name.length() + 1);
+      }
+    }
+    return null;
+  }
+
+  private MethodInvocation invocation(
+      ContainerConfig containerConfig, String containerName, int index) {
+    final ContainerCreated containerCreated = mock(ContainerCreated.class);
+    when(containerCreated.getId()).thenReturn("id" + index);
+    return new StubMethodInvocation(
+        dockerConnector,
+        CreateContainerParams.create(containerConfig).withContainerName(containerName),
+        containerCreated);
+  }
+}
@@ -7,12 +7,16 @@ package com.stratio.intelligence.che.plugin.traefik;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import org.aopalliance.intercept.MethodInvocation;
 import org.eclipse.che.plugin.docker.client.DockerConnector;
 import org.eclipse.che.plugin.docker.client.json.ContainerConfig;
@@ -64,6 +68,7 @@ public class TraefikCreateContainerInterceptorTest {
   private Map<String, ExposedPort> imageExposedPorts;
   private Map<String, String> containerLabels;
   private Map<String, String> imageLabels;
+  private TraefikMetrics metrics;
 
   @BeforeMethod
   protected void setup() throws Exception {
@@ -74,6 +79,15 @@ public class TraefikCreateContainerInterceptorTest {
     traefikCreateContainerInterceptor.setServerEvaluationStrategyProvider(
         serverEvaluationStrategyProvider);
     traefikCreateContainerInterceptor.setTemplate(TEMPLATE);
+    final AsyncImageInspector imageInspector =
+        new AsyncImageInspector(new ImageMetadataCache(10, 1, TimeUnit.MINUTES), 2, 1000, 2000);
+    traefikCreateContainerInterceptor.setImageInspector(imageInspector);
+    metrics = new TraefikMetrics();
+    traefikCreateContainerInterceptor.setMetrics(metrics);
+    traefikCreateContainerInterceptor.setRouteProvider(null);
+    traefikCreateContainerInterceptor.setEnabled(true);
+    traefikCreateContainerInterceptor.overrideTemplate(null);
+    traefikCreateContainerInterceptor.setInjectionRules(null);
 
     containerLabels = new HashMap<>(6);
     imageLabels = new HashMap<>(6);
@@ -161,6 +175,51 @@ public class TraefikCreateContainerInterceptorTest {
         containerLabels.get("traefik.service-tomcat8.frontend.rule"),
         "PathPrefixStrip:/tomcat8-abcd-work123");
     // "Host:tomcat8.abcd.work123.127.0.0.1.nip.io");
+
+    Assert.assertEquals(metrics.getInvocationCount(), 1);
+    Assert.assertEquals(metrics.getRouteCount(), 6);
+    Assert.assertEquals(metrics.getTimer(TraefikMetrics.Phase.TOTAL).getCount(), 1);
+  }
+
+  /** If the image cannot be inspected, routes are built from the container data */
+  @Test
+  public void testInspectionFailureFallback() throws Throwable {
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenThrow(new IOException("daemon down"));
+    containerLabels.put("che:server:4401/tcp:ref", "wsagent");
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+    imageExposedPorts.put("8080/tcp", new ExposedPort());
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    Assert.assertEquals(containerLabels.get("traefik.service-wsagent.port"), "4401");
+    Assert.assertFalse(containerLabels.containsKey("traefik.service-server-8080.port"));
+    Assert.assertEquals(metrics.getInspectFallbackCount(), 1);
+    verify(methodInvocation).proceed();
+  }
+
+  /** With a route provider, routes are published once the container is created, not as labels */
+  @Test
+  public void testRouteProvider() throws Throwable {
+    final InMemoryKeyValueStore keyValueStore = new InMemoryKeyValueStore();
+    final KeyValueRouteProvider routeProvider =
+        new KeyValueRouteProvider(KeyValueRouteProvider.DEFAULT_PREFIX);
+    routeProvider.setKeyValueStore(keyValueStore);
+    traefikCreateContainerInterceptor.setRouteProvider(routeProvider);
+    when(createContainerParams.getContainerName()).thenReturn("workspace_machine");
+    containerLabels.put("che:server:4401/tcp:ref", "wsagent");
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    Assert.assertFalse(containerLabels.containsKey("traefik.service-wsagent.port"));
+    Assert.assertFalse(containerLabels.containsKey("traefik.frontend.rule"));
+    Assert.assertEquals(
+        keyValueStore
+            .getEntries()
+            .get("traefik/frontends/workspace_machine@service-wsagent/routes/route/rule"),
+        "PathPrefixStrip:/wsagent-abcd-work123");
+    verify(methodInvocation).proceed();
   }
 
   /** Check we didn't do any interaction on method invocation if strategy is another one */
@@ -177,4 +236,141 @@ public class TraefikCreateContainerInterceptorTest {
     verify(methodInvocation).proceed();
     verify(methodInvocation, never()).getThis();
   }
+
+  /** The strategy is resolved once, until refreshed */
+  @Test
+  public void testStrategyResolvedOnce() throws Throwable {
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+    verify(serverEvaluationStrategyProvider, times(1)).get();
+
+    traefikCreateContainerInterceptor.refreshStrategy();
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+    verify(serverEvaluationStrategyProvider, times(2)).get();
+  }
+
+  /** A disabled plug-in only creates the container */
+  @Test
+  public void testDisabled() throws Throwable {
+    containerLabels.put("che:server:4401/tcp:ref", "wsagent");
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+    traefikCreateContainerInterceptor.setEnabled(false);
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    Assert.assertFalse(containerLabels.containsKey("traefik.service-wsagent.port"));
+    verify(methodInvocation).proceed();
+    verify(methodInvocation, never()).getThis();
+  }
+
+  /** The template can be replaced at runtime and restored */
+  @Test
+  public void testTemplateOverride() throws Throwable {
+    containerLabels.put("che:server:4401/tcp:ref", "wsagent");
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+    traefikCreateContainerInterceptor.overrideTemplate(
+        "predatio.traefik/<workspaceId>-<serverName>");
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+    Assert.assertEquals(
+        containerLabels.get("traefik.service-wsagent.frontend.rule"),
+        "PathPrefixStrip:/work123-wsagent");
+
+    traefikCreateContainerInterceptor.overrideTemplate(null);
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+    Assert.assertEquals(
+        containerLabels.get("traefik.service-wsagent.frontend.rule"),
+        "PathPrefixStrip:/wsagent-abcd-work123");
+  }
+
+  /** Without injection rules, the environment, command and user are left unchanged */
+  @Test
+  public void testNoInjection() throws Throwable {
+    containerExposedPorts.put("4401/tcp", Collections.emptyMap());
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    verify(containerConfig, never()).setEnv(any(String[].class));
+    verify(containerConfig, never()).setCmd(any(String[].class));
+    verify(containerConfig, never()).setUser(any());
+    verify(methodInvocation).proceed();
+  }
+
+  /** Injection rules change the containers they match, labels of the image included */
+  @Test
+  public void testInjectionRules() throws Throwable {
+    imageLabels.put("com.stratio.vault", "true");
+    final Properties configuration = new Properties();
+    configuration.setProperty("inject.vault.label", "com.stratio.vault=true");
+    configuration.setProperty("inject.vault.env.STRATIO_VAULT_PATH", "/path/to/vault");
+    configuration.setProperty("inject.vault.user", "root");
+    configuration.setProperty("inject.other.image", "other/*");
+    configuration.setProperty("inject.other.cmd.0", "sleep");
+    traefikCreateContainerInterceptor.setInjectionRules(new InjectionRules(configuration));
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    verify(containerConfig)
+        .setEnv(
+            new String[] {
+              "CHE_WORKSPACE_ID=work123",
+              "CHE_MACHINE_NAME=abcd",
+              "CHE_IS_DEV_MACHINE=true",
+              "STRATIO_VAULT_PATH=/path/to/vault"
+            });
+    verify(containerConfig).setUser("root");
+    verify(containerConfig, never()).setCmd(any(String[].class));
+  }
+
+  /** Label rules cannot match without the image labels, the skipped match is counted */
+  @Test
+  public void testInjectionRulesWithoutImageLabels() throws Throwable {
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenThrow(new IOException("daemon down"));
+    final Properties configuration = new Properties();
+    configuration.setProperty("inject.vault.label", "com.stratio.vault=true");
+    configuration.setProperty("inject.vault.user", "root");
+    traefikCreateContainerInterceptor.setInjectionRules(new InjectionRules(configuration));
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    verify(containerConfig, never()).setUser(any());
+    Assert.assertEquals(metrics.getInjectionFallbackCount(), 1);
+    Assert.assertEquals(metrics.getInspectFallbackCount(), 1);
+  }
+
+  @Test
+  public void testSlowInspectionNotAwaitedForOtherImages() throws Throwable {
+    when(dockerConnector.inspectImage(any(InspectImageParams.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(1500);
+              return imageInfo;
+            });
+    final Properties configuration = new Properties();
+    configuration.setProperty("inject.vault.image", "stratio/*");
+    configuration.setProperty("inject.vault.label", "com.stratio.vault=true");
+    configuration.setProperty("inject.vault.user", "root");
+    traefikCreateContainerInterceptor.setInjectionRules(new InjectionRules(configuration));
+
+    traefikCreateContainerInterceptor.invoke(methodInvocation);
+
+    // the rule cannot match the image, its labels were not awaited beyond the timeout
+    verify(containerConfig, never()).setUser(any());
+    Assert.assertEquals(metrics.getInjectionFallbackCount(), 0);
+    Assert.assertEquals(metrics.getInspectFallbackCount(), 1);
+  }
+
+  @Test
+  public void testWorkspaceId() {
+    Assert.assertEquals(
+        TraefikCreateContainerInterceptor.workspaceId(
+            new String[] {"CHE_MACHINE_NAME=abcd", "CHE_WORKSPACE_ID=work123"}),
+        "work123");
+    Assert.assertNull(
+        TraefikCreateContainerInterceptor.workspaceId(new String[] {"HELLO=world"}));
+    Assert.assertNull(TraefikCreateContainerInterceptor.workspaceId(null));
+  }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017. Stratio Big Data Inc., Sucursal en España. All rights reserved.
+ *
+ * This software – including all its source code – contains proprietary information of Stratio Big Data Inc., Sucursal en España and may not be revealed, sold, transferred, modified, distributed or otherwise made available, licensed or sublicensed to third parties; nor reverse engineered, disassembled or decompiled, without express written authorization from Stratio Big Data Inc., Sucursal en España.
+ */
+package com.stratio.intelligence.che.plugin.traefik;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WindowedHistogramTest {
+
+  @Test
+  public void testPercentilesFollowRecentValues() {
+    final AtomicLong now = new AtomicLong();
+    final WindowedHistogram histogram = new WindowedHistogram(1, TimeUnit.MINUTES, now::get);
+    for (int i = 0; i < 1000; i++) {
+      histogram.record(10);
+    }
+
+    // the previous window still counts
+    now.addAndGet(TimeUnit.SECONDS.toNanos(70));
+    histogram.record(1);
+    Assert.assertEquals(histogram.getCount(), 1001);
+    Assert.assertEquals(histogram.getPercentile(0.5), 10);
+
+    // slow values of the first window are forgotten
+    now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    histogram.record(1);
+    Assert.assertEquals(histogram.getCount(), 2);
+    Assert.assertEquals(histogram.getPercentile(0.99), 1);
+
+    // nothing recorded for two windows
+    now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+    Assert.assertEquals(histogram.getCount(), 0);
+    Assert.assertEquals(histogram.getPercentile(0.5), 0);
+  }
+}